@@ -3,12 +3,6 @@ public class BithattenTarif {
 		final int netSize 		= Integer.parseInt(args[0]);
 		final int start 		= Integer.parseInt(args[1]);	//13
 		final int end 			= Integer.parseInt(args[2]);
-		final int unitPositionStart	= start%10;			//3	Einerstelle
-		final int unitPositionEnd	= end%10;
-		final int decileRankStart	= start/10;			//1	Zehnerstelle
-		final int decileRankEnd		= end/10;	
-		int price 			= 0;
-		int outerCirclePrice 		= 0;
 		int[][] streetNet 		= new int[netSize][netSize];
 		
 		for(int i = 0; i < netSize; i++) {
@@ -18,6 +12,18 @@ public class BithattenTarif {
 			}
 			System.out.printf("\n");
 		}	
+		System.out.println(price(netSize, start, end));
+	}
+
+	//price from start to end on a netSize x netSize grid, nodes are numbered row*10 + column
+	public static int price(int netSize, int start, int end) {
+		final int unitPositionStart	= start%10;			//3	Einerstelle
+		final int unitPositionEnd	= end%10;
+		final int decileRankStart	= start/10;			//1	Zehnerstelle
+		final int decileRankEnd		= end/10;	
+		int price 			= 0;
+		int outerCirclePrice 		= 0;
+
 		//calculate prize for perpendicular street	
 		if(decileRankStart <= decileRankEnd) {
 			for(int i = decileRankStart; i < decileRankEnd; i++) {
@@ -47,11 +53,10 @@ public class BithattenTarif {
 		}	
 		
 		if(price <= outerCirclePrice) {
-			System.out.println(price);
+			return price;
 		} else {
-			System.out.println(outerCirclePrice);
+			return outerCirclePrice;
 		}
-
 	}
 }
 
@@ -0,0 +1,463 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Contraction hierarchy over a StreetNet for fast fare queries.
+ *
+ * build() contracts the nodes one by one, cheapest first, and adds a shortcut
+ * wherever a shortest path ran through the contracted node. Every node keeps only
+ * the edges up to nodes contracted later, so a fare query is a bidirectional
+ * Dijkstra that only climbs the hierarchy and settles a few hundred nodes even on
+ * large nets.
+ *
+ * The hierarchy is stored as two compressed sparse rows (upward forward edges and
+ * upward backward edges) of big-endian ints:
+ *   magic, version, nodes, forwardEdges, backwardEdges,
+ *   forwardOffsets[nodes+1], forwardTargets[], forwardCosts[],
+ *   backwardOffsets[nodes+1], backwardTargets[], backwardCosts[]
+ * open() maps every section of that file read-only, so start-up costs nothing and
+ * all processes on a machine share the pages. Each section is mapped on its own and
+ * must stay below 2 GB, the file as a whole may be larger.
+ *
+ * On a StreetNet.grid() the node ids are StreetNet.gridNode() of the BithattenTarif
+ * crossings.
+ *
+ * Path costs must stay below Integer.MAX_VALUE.
+ */
+public class ContractionHierarchy {
+	public static final int NO_ROUTE	= -1;
+
+	private static final int MAGIC		= 0x42484348;	//"BHCH"
+	private static final int VERSION	= 1;
+	private static final int HEADER		= 5;	//ints before the first section
+
+	//witness searches give up after this many settled nodes and add the shortcut
+	private static final int WITNESS_LIMIT	= 500;
+
+	private final int nodes;
+	private final IntBuffer forwardOffsets;
+	private final IntBuffer forwardTargets;
+	private final IntBuffer forwardCosts;
+	private final IntBuffer backwardOffsets;
+	private final IntBuffer backwardTargets;
+	private final IntBuffer backwardCosts;
+
+	//every thread gets its own search state
+	private final ThreadLocal<Query> queries = ThreadLocal.withInitial(Query::new);
+
+	private ContractionHierarchy(int nodes, IntBuffer fo, IntBuffer ft, IntBuffer fc,
+				     IntBuffer bo, IntBuffer bt, IntBuffer bc) {
+		this.nodes	= nodes;
+		forwardOffsets	= fo;
+		forwardTargets	= ft;
+		forwardCosts	= fc;
+		backwardOffsets	= bo;
+		backwardTargets	= bt;
+		backwardCosts	= bc;
+	}
+
+	public int nodes() {
+		return nodes;
+	}
+
+	//cheapest cost from start to end, NO_ROUTE if end cannot be reached
+	public int fare(int start, int end) {
+		if(start < 0 || start >= nodes || end < 0 || end >= nodes) {
+			throw new IllegalArgumentException("no such node: " + start + " -> " + end);
+		}
+		return queries.get().run(start, end);
+	}
+
+	/**
+	 * Bidirectional upward Dijkstra. Both searches run until the smallest open
+	 * distance of a side reaches the best meeting cost found so far.
+	 */
+	private final class Query {
+		private final int[] distF	= new int[nodes];
+		private final int[] distB	= new int[nodes];
+		private final int[] seenF	= new int[nodes];
+		private final int[] seenB	= new int[nodes];
+		private final LongHeap heapF	= new LongHeap();
+		private final LongHeap heapB	= new LongHeap();
+		private int round		= 0;
+
+		int run(int start, int end) {
+			if(++round == 0) {
+				Arrays.fill(seenF, 0);
+				Arrays.fill(seenB, 0);
+				round = 1;
+			}
+			heapF.clear();
+			heapB.clear();
+			distF[start] = 0;
+			seenF[start] = round;
+			heapF.push(0, start);
+			distB[end] = 0;
+			seenB[end] = round;
+			heapB.push(0, end);
+			long best = Long.MAX_VALUE;
+			boolean forward = true;
+			while(true) {
+				boolean moreF = !heapF.isEmpty() && heapF.minKey() < best;
+				boolean moreB = !heapB.isEmpty() && heapB.minKey() < best;
+				if(!moreF && !moreB) {
+					break;
+				}
+				forward = moreF && (forward || !moreB);
+				if(forward) {
+					best = step(heapF, distF, seenF, distB, seenB,
+						    forwardOffsets, forwardTargets, forwardCosts,
+						    backwardOffsets, backwardTargets, backwardCosts, best);
+				} else {
+					best = step(heapB, distB, seenB, distF, seenF,
+						    backwardOffsets, backwardTargets, backwardCosts,
+						    forwardOffsets, forwardTargets, forwardCosts, best);
+				}
+				forward = !forward;
+			}
+			return best == Long.MAX_VALUE ? NO_ROUTE : (int)best;
+		}
+
+		private long step(LongHeap heap, int[] dist, int[] seen, int[] otherDist, int[] otherSeen,
+				  IntBuffer offsets, IntBuffer targets, IntBuffer costs,
+				  IntBuffer downOffsets, IntBuffer downTargets, IntBuffer downCosts, long best) {
+			long top = heap.pop();
+			int d = (int)(top >>> 32);
+			int v = (int)top;
+			if(d > dist[v]) {
+				return best;	//stale entry
+			}
+			if(otherSeen[v] == round) {
+				best = Math.min(best, (long)d + otherDist[v]);
+			}
+			//stall on demand: a higher node already reaches v cheaper, so v is not on a shortest up path
+			for(int e = downOffsets.get(v); e < downOffsets.get(v + 1); e++) {
+				int u = downTargets.get(e);
+				if(seen[u] == round && dist[u] + downCosts.get(e) < d) {
+					return best;
+				}
+			}
+			for(int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+				int w = targets.get(e);
+				int dw = d + costs.get(e);
+				if(seen[w] != round || dw < dist[w]) {
+					seen[w] = round;
+					dist[w] = dw;
+					heap.push(dw, w);
+				}
+			}
+			return best;
+		}
+	}
+
+	public void write(File file) throws IOException {
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(nodes);
+			out.writeInt(forwardTargets.limit());
+			out.writeInt(backwardTargets.limit());
+			for(IntBuffer b : new IntBuffer[] {forwardOffsets, forwardTargets, forwardCosts,
+							   backwardOffsets, backwardTargets, backwardCosts}) {
+				for(int i = 0; i < b.limit(); i++) {
+					out.writeInt(b.get(i));
+				}
+			}
+		}
+	}
+
+	public static ContractionHierarchy open(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(4*HEADER);
+			while(header.hasRemaining() && channel.read(header, header.position()) > 0) {
+				//a short file ends with an empty read
+			}
+			if(header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException(file + ": not a contraction hierarchy");
+			}
+			int n	= header.getInt(8);
+			int fe	= header.getInt(12);
+			int be	= header.getInt(16);
+			if(n < 0 || fe < 0 || be < 0
+			   || channel.size() != 4*(HEADER + 2*(n + 1L) + 2L*fe + 2L*be)) {
+				throw new IOException(file + ": truncated contraction hierarchy");
+			}
+			long p = 4L*HEADER;
+			IntBuffer fo = map(file, channel, p, n + 1L);	p += 4*(n + 1L);
+			IntBuffer ft = map(file, channel, p, fe);	p += 4L*fe;
+			IntBuffer fc = map(file, channel, p, fe);	p += 4L*fe;
+			IntBuffer bo = map(file, channel, p, n + 1L);	p += 4*(n + 1L);
+			IntBuffer bt = map(file, channel, p, be);	p += 4L*be;
+			IntBuffer bc = map(file, channel, p, be);
+			return new ContractionHierarchy(n, fo, ft, fc, bo, bt, bc);
+		}
+	}
+
+	//maps ints ints from byte position on, a single mapping holds at most 2 GB
+	private static IntBuffer map(File file, FileChannel channel, long position, long ints) throws IOException {
+		if(4*ints > Integer.MAX_VALUE) {
+			throw new IOException(file + ": section of " + ints + " ints is too large to map");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, 4*ints).asIntBuffer();
+	}
+
+	public static ContractionHierarchy build(StreetNet net) {
+		return new Builder(net).run();
+	}
+
+	/**
+	 * Contracts the nodes in order of edge difference, contracted neighbours and
+	 * level (how many contractions below a node), with lazy updates of the priorities.
+	 * The level spreads the contractions evenly over regular grids.
+	 */
+	private static final class Builder {
+		private final int n;
+		private final Arcs[] out;
+		private final Arcs[] in;
+		private final boolean[] contracted;
+		private final int[] contractedNeighbours;
+		private final int[] level;
+		private final Arcs[] upForward;
+		private final Arcs[] upBackward;
+
+		//witness search state
+		private final int[] dist;
+		private final int[] seen;
+		private int round	= 0;
+		private final LongHeap heap	= new LongHeap();
+
+		Builder(StreetNet net) {
+			n = net.nodes();
+			out			= new Arcs[n];
+			in			= new Arcs[n];
+			upForward		= new Arcs[n];
+			upBackward		= new Arcs[n];
+			contracted		= new boolean[n];
+			contractedNeighbours	= new int[n];
+			level			= new int[n];
+			dist			= new int[n];
+			seen			= new int[n];
+			for(int v = 0; v < n; v++) {
+				out[v]	= new Arcs();
+				in[v]	= new Arcs();
+			}
+			for(int i = 0; i < net.streets(); i++) {
+				int a = net.from(i);
+				int b = net.to(i);
+				if(a == b) {
+					continue;
+				}
+				arc(a, b, net.cost(i));
+				if(!net.oneway(i)) {
+					arc(b, a, net.cost(i));
+				}
+			}
+		}
+
+		ContractionHierarchy run() {
+			LongHeap queue = new LongHeap();
+			for(int v = 0; v < n; v++) {
+				queue.push(priority(v), v);
+			}
+			while(!queue.isEmpty()) {
+				int v = (int)queue.pop();
+				int p = priority(v);
+				if(!queue.isEmpty() && p > queue.minKey()) {
+					queue.push(p, v);	//lazy update: somebody else is cheaper now
+					continue;
+				}
+				contract(v, false);
+			}
+			return new ContractionHierarchy(n,
+				IntBuffer.wrap(offsets(upForward)), IntBuffer.wrap(targets(upForward)), IntBuffer.wrap(costs(upForward)),
+				IntBuffer.wrap(offsets(upBackward)), IntBuffer.wrap(targets(upBackward)), IntBuffer.wrap(costs(upBackward)));
+		}
+
+		//priorities are shifted so that they sort as unsigned keys in the heap
+		private int priority(int v) {
+			int degree = 0;
+			for(int i = 0; i < out[v].size; i++) {
+				if(!contracted[out[v].to[i]]) {
+					degree++;
+				}
+			}
+			for(int i = 0; i < in[v].size; i++) {
+				if(!contracted[in[v].to[i]]) {
+					degree++;
+				}
+			}
+			return 2*(contract(v, true) - degree) + contractedNeighbours[v] + level[v] + (1 << 20);
+		}
+
+		//adds the shortcuts around v, or only counts them if simulate is set
+		private int contract(int v, boolean simulate) {
+			int shortcuts = 0;
+			Arcs o = out[v];
+			Arcs i = in[v];
+			for(int a = 0; a < i.size; a++) {
+				int u = i.to[a];
+				if(contracted[u]) {
+					continue;
+				}
+				int max = 0;
+				for(int b = 0; b < o.size; b++) {
+					if(!contracted[o.to[b]] && o.to[b] != u) {
+						max = Math.max(max, i.cost[a] + o.cost[b]);
+					}
+				}
+				witness(u, v, max);
+				for(int b = 0; b < o.size; b++) {
+					int w = o.to[b];
+					if(contracted[w] || w == u) {
+						continue;
+					}
+					int via = i.cost[a] + o.cost[b];
+					if(seen[w] != round || dist[w] > via) {
+						shortcuts++;
+						if(!simulate) {
+							arc(u, w, via);
+						}
+					}
+				}
+			}
+			if(!simulate) {
+				contracted[v] = true;
+				upForward[v]	= remaining(o);
+				upBackward[v]	= remaining(i);
+				for(int b = 0; b < o.size; b++) {
+					neighbourContracted(o.to[b], v);
+				}
+				for(int a = 0; a < i.size; a++) {
+					neighbourContracted(i.to[a], v);
+				}
+				out[v] = null;
+				in[v] = null;
+			}
+			return shortcuts;
+		}
+
+		private void neighbourContracted(int w, int v) {
+			contractedNeighbours[w]++;
+			level[w] = Math.max(level[w], level[v] + 1);
+		}
+
+		//Dijkstra from u around v, up to cost max
+		private void witness(int u, int v, int max) {
+			round++;
+			heap.clear();
+			dist[u] = 0;
+			seen[u] = round;
+			heap.push(0, u);
+			int settled = 0;
+			while(!heap.isEmpty() && settled < WITNESS_LIMIT) {
+				long top = heap.pop();
+				int d = (int)(top >>> 32);
+				int x = (int)top;
+				if(d > dist[x]) {
+					continue;
+				}
+				if(d > max) {
+					break;
+				}
+				settled++;
+				Arcs a = out[x];
+				for(int e = 0; e < a.size; e++) {
+					int y = a.to[e];
+					if(y == v || contracted[y]) {
+						continue;
+					}
+					int dy = d + a.cost[e];
+					if(seen[y] != round || dy < dist[y]) {
+						seen[y] = round;
+						dist[y] = dy;
+						heap.push(dy, y);
+					}
+				}
+			}
+		}
+
+		private void arc(int a, int b, int c) {
+			out[a].put(b, c);
+			in[b].put(a, c);
+		}
+
+		private Arcs remaining(Arcs arcs) {
+			Arcs r = new Arcs();
+			for(int e = 0; e < arcs.size; e++) {
+				if(!contracted[arcs.to[e]]) {
+					r.put(arcs.to[e], arcs.cost[e]);
+				}
+			}
+			return r;
+		}
+
+		private int[] offsets(Arcs[] arcs) {
+			int[] offsets = new int[n + 1];
+			for(int v = 0; v < n; v++) {
+				offsets[v + 1] = offsets[v] + arcs[v].size;
+			}
+			return offsets;
+		}
+
+		private int[] targets(Arcs[] arcs) {
+			int[] t = new int[offsets(arcs)[n]];
+			int p = 0;
+			for(Arcs a : arcs) {
+				System.arraycopy(a.to, 0, t, p, a.size);
+				p += a.size;
+			}
+			return t;
+		}
+
+		private int[] costs(Arcs[] arcs) {
+			int[] c = new int[offsets(arcs)[n]];
+			int p = 0;
+			for(Arcs a : arcs) {
+				System.arraycopy(a.cost, 0, c, p, a.size);
+				p += a.size;
+			}
+			return c;
+		}
+	}
+
+	//adjacency list of one node, parallel arcs are merged to the cheapest
+	private static final class Arcs {
+		int[] to	= new int[4];
+		int[] cost	= new int[4];
+		int size	= 0;
+
+		void put(int w, int c) {
+			for(int e = 0; e < size; e++) {
+				if(to[e] == w) {
+					cost[e] = Math.min(cost[e], c);
+					return;
+				}
+			}
+			if(size == to.length) {
+				to	= Arrays.copyOf(to, 2*size);
+				cost	= Arrays.copyOf(cost, 2*size);
+			}
+			to[size]	= w;
+			cost[size]	= c;
+			size++;
+		}
+	}
+
+	//java ContractionHierarchy build net.txt net.ch
+	//java ContractionHierarchy fare net.ch start end
+	public static void main(String args[]) throws IOException {
+		if(args[0].equals("build")) {
+			long t0 = System.nanoTime();
+			ContractionHierarchy ch = build(StreetNet.read(new File(args[1])));
+			ch.write(new File(args[2]));
+			System.out.printf("%d nodes, %d + %d edges, %d ms%n", ch.nodes(), ch.forwardTargets.limit(),
+					  ch.backwardTargets.limit(), (System.nanoTime() - t0)/1000000);
+		} else {
+			ContractionHierarchy ch = open(new File(args[1]));
+			System.out.println(ch.fare(Integer.parseInt(args[2]), Integer.parseInt(args[3])));
+		}
+	}
+}
@@ -0,0 +1,300 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Fares from a set of start nodes to every node of a StreetNet while streets
+ * close, reopen or change their price during the day.
+ *
+ * For every start node a shortest path tree is kept. A cheaper street only
+ * pushes the improvement outward from its end node. A dearer or closed street
+ * only matters if it is a tree edge: then only the subtree hanging from it is
+ * cut off and reattached with a Dijkstra seeded from its border. All other
+ * fares stay untouched.
+ *
+ * Readers get an immutable Snapshot. Every event publishes a new one through a
+ * volatile field; rows of start nodes that did not change are shared between
+ * snapshots, so readers never block and never see half an update.
+ */
+public class DynamicFares {
+	public static final int NO_ROUTE	= -1;
+	public static final int CLOSED		= Integer.MAX_VALUE;
+
+	private static final int UNREACHED	= Integer.MAX_VALUE;
+	private static final int NO_ARC		= -1;
+
+	//arcs are directed, a two-way street has two
+	private final int nodes;
+	private final int[] arcFrom;
+	private final int[] arcTo;
+	private final int[] arcCost;
+	private final int[] outStart;
+	private final int[] outArcs;
+	private final int[] inStart;
+	private final int[] inArcs;
+	private final int[] streetArc;		//first arc of street i, the second is streetArc[i] + 1
+	private final boolean[] streetOneway;
+
+	private final int[] sources;
+	private final int[] sourceRow;		//row of a node in the fare table, -1 if it is no start node
+	private final int[][] parent;		//tree arc into every node, per start node
+
+	//search state of the writer
+	private final boolean[] cut;
+	private final LongHeap heap	= new LongHeap();
+
+	private volatile Snapshot snapshot;
+
+	public static final class Snapshot {
+		private final int[][] rows;
+		private final int[] sourceRow;
+		private final long version;
+
+		private Snapshot(int[][] rows, int[] sourceRow, long version) {
+			this.rows	= rows;
+			this.sourceRow	= sourceRow;
+			this.version	= version;
+		}
+
+		//fare from start to end, NO_ROUTE if end cannot be reached
+		public int fare(int start, int end) {
+			int row = start >= 0 && start < sourceRow.length ? sourceRow[start] : -1;
+			if(row < 0) {
+				throw new IllegalArgumentException("not a start node: " + start);
+			}
+			int d = rows[row][end];
+			return d == UNREACHED ? NO_ROUTE : d;
+		}
+
+		//number of events applied before this snapshot
+		public long version() {
+			return version;
+		}
+	}
+
+	//fares from every node
+	public DynamicFares(StreetNet net) {
+		this(net, null);
+	}
+
+	//fares from the given start nodes only, null = every node
+	public DynamicFares(StreetNet net, int[] starts) {
+		nodes = net.nodes();
+		streetArc	= new int[net.streets()];
+		streetOneway	= new boolean[net.streets()];
+		int arcs = 0;
+		for(int i = 0; i < net.streets(); i++) {
+			streetArc[i]	= arcs;
+			streetOneway[i]	= net.oneway(i);
+			arcs += net.oneway(i) ? 1 : 2;
+		}
+		arcFrom	= new int[arcs];
+		arcTo	= new int[arcs];
+		arcCost	= new int[arcs];
+		for(int i = 0; i < net.streets(); i++) {
+			int a = streetArc[i];
+			arcFrom[a]	= net.from(i);
+			arcTo[a]	= net.to(i);
+			arcCost[a]	= net.cost(i);
+			if(!streetOneway[i]) {
+				arcFrom[a + 1]	= net.to(i);
+				arcTo[a + 1]	= net.from(i);
+				arcCost[a + 1]	= net.cost(i);
+			}
+		}
+		outStart	= new int[nodes + 1];
+		outArcs		= new int[arcs];
+		inStart		= new int[nodes + 1];
+		inArcs		= new int[arcs];
+		index(arcFrom, outStart, outArcs);
+		index(arcTo, inStart, inArcs);
+
+		if(starts == null) {
+			starts = new int[nodes];
+			for(int v = 0; v < nodes; v++) {
+				starts[v] = v;
+			}
+		}
+		sources		= starts.clone();
+		sourceRow	= new int[nodes];
+		Arrays.fill(sourceRow, -1);
+		parent		= new int[sources.length][];
+		cut		= new boolean[nodes];
+		int[][] rows	= new int[sources.length][];
+		for(int r = 0; r < sources.length; r++) {
+			if(sources[r] < 0 || sources[r] >= nodes) {
+				throw new IllegalArgumentException("no such node: " + sources[r]);
+			}
+			sourceRow[sources[r]] = r;
+			rows[r] = new int[nodes];
+			parent[r] = new int[nodes];
+			Arrays.fill(rows[r], UNREACHED);
+			Arrays.fill(parent[r], NO_ARC);
+			rows[r][sources[r]] = 0;
+			heap.clear();
+			heap.push(0, sources[r]);
+			dijkstra(rows[r], parent[r]);
+		}
+		snapshot = new Snapshot(rows, sourceRow, 0);
+	}
+
+	//counting sort of the arcs by node
+	private void index(int[] node, int[] start, int[] arcs) {
+		for(int a = 0; a < node.length; a++) {
+			start[node[a] + 1]++;
+		}
+		for(int v = 0; v < nodes; v++) {
+			start[v + 1] += start[v];
+		}
+		int[] next = Arrays.copyOf(start, nodes);
+		for(int a = 0; a < node.length; a++) {
+			arcs[next[node[a]]++] = a;
+		}
+	}
+
+	public Snapshot snapshot() {
+		return snapshot;
+	}
+
+	public int fare(int start, int end) {
+		return snapshot.fare(start, end);
+	}
+
+	public void close(int street) {
+		price(street, CLOSED);
+	}
+
+	//sets a new price for a street in both directions, CLOSED closes it
+	public synchronized void price(int street, int cost) {
+		if(cost < 0) {
+			throw new IllegalArgumentException("negative cost: " + cost);
+		}
+		Snapshot old = snapshot;
+		int[][] rows = old.rows.clone();
+		boolean[] copied = new boolean[rows.length];
+		int arcs = streetOneway[street] ? 1 : 2;
+		for(int a = streetArc[street]; a < streetArc[street] + arcs; a++) {
+			int before = arcCost[a];
+			arcCost[a] = cost;
+			if(cost == before) {
+				continue;
+			}
+			for(int r = 0; r < rows.length; r++) {
+				if(cost < before ? improves(rows[r], a) : parent[r][arcTo[a]] == a) {
+					if(!copied[r]) {
+						rows[r] = rows[r].clone();
+						copied[r] = true;
+					}
+					if(cost < before) {
+						decrease(rows[r], parent[r], a);
+					} else {
+						increase(rows[r], parent[r], a);
+					}
+				}
+			}
+		}
+		snapshot = new Snapshot(rows, sourceRow, old.version + 1);
+	}
+
+	private boolean improves(int[] dist, int a) {
+		int du = dist[arcFrom[a]];
+		return du != UNREACHED && arcCost[a] != CLOSED && (long)du + arcCost[a] < dist[arcTo[a]];
+	}
+
+	//a cheaper arc: push the improvement outward from its end
+	private void decrease(int[] dist, int[] tree, int a) {
+		int v = arcTo[a];
+		dist[v] = dist[arcFrom[a]] + arcCost[a];
+		tree[v] = a;
+		heap.clear();
+		heap.push(dist[v], v);
+		dijkstra(dist, tree);
+	}
+
+	//a dearer tree arc: cut off the subtree below it and reattach it from outside
+	private void increase(int[] dist, int[] tree, int a) {
+		int[] subtree = subtree(tree, arcTo[a]);
+		for(int y : subtree) {
+			dist[y] = UNREACHED;
+			tree[y] = NO_ARC;
+		}
+		heap.clear();
+		for(int y : subtree) {
+			for(int i = inStart[y]; i < inStart[y + 1]; i++) {
+				int b = inArcs[i];
+				int x = arcFrom[b];
+				if(!cut[x] && dist[x] != UNREACHED && arcCost[b] != CLOSED && (long)dist[x] + arcCost[b] < dist[y]) {
+					dist[y] = dist[x] + arcCost[b];
+					tree[y] = b;
+				}
+			}
+			if(dist[y] != UNREACHED) {
+				heap.push(dist[y], y);
+			}
+		}
+		for(int y : subtree) {
+			cut[y] = false;
+		}
+		dijkstra(dist, tree);
+	}
+
+	//all nodes whose tree path runs through root, marked in cut
+	private int[] subtree(int[] tree, int root) {
+		int[] found = new int[16];
+		int size = 0;
+		found[size++] = root;
+		cut[root] = true;
+		for(int i = 0; i < size; i++) {
+			int x = found[i];
+			for(int j = outStart[x]; j < outStart[x + 1]; j++) {
+				int b = outArcs[j];
+				int y = arcTo[b];
+				if(tree[y] == b && !cut[y]) {
+					if(size == found.length) {
+						found = Arrays.copyOf(found, 2*size);
+					}
+					found[size++] = y;
+					cut[y] = true;
+				}
+			}
+		}
+		return Arrays.copyOf(found, size);
+	}
+
+	//settles the nodes in the heap and everything they improve
+	private void dijkstra(int[] dist, int[] tree) {
+		while(!heap.isEmpty()) {
+			long top = heap.pop();
+			int d = (int)(top >>> 32);
+			int x = (int)top;
+			if(d > dist[x]) {
+				continue;
+			}
+			for(int j = outStart[x]; j < outStart[x + 1]; j++) {
+				int b = outArcs[j];
+				if(arcCost[b] == CLOSED) {
+					continue;
+				}
+				int y = arcTo[b];
+				long dy = (long)d + arcCost[b];
+				if(dy < dist[y]) {
+					dist[y] = (int)dy;
+					tree[y] = b;
+					heap.push((int)dy, y);
+				}
+			}
+		}
+	}
+
+	//java DynamicFares net.txt start end [street cost]...	cost -1 closes the street
+	public static void main(String args[]) throws IOException {
+		int start	= Integer.parseInt(args[1]);
+		int end		= Integer.parseInt(args[2]);
+		DynamicFares fares = new DynamicFares(StreetNet.read(new File(args[0])), new int[] {start});
+		System.out.println(fares.fare(start, end));
+		for(int i = 3; i + 1 < args.length; i += 2) {
+			int cost = Integer.parseInt(args[i + 1]);
+			fares.price(Integer.parseInt(args[i]), cost < 0 ? CLOSED : cost);
+			System.out.println(fares.fare(start, end));
+		}
+	}
+}
@@ -0,0 +1,256 @@
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Bounded cache for fares of hot start/end pairs.
+ *
+ * Keys are packed into a long (net, start, end with 21 bits each), values are
+ * ints, and both live in primitive open-addressing tables with linear probing,
+ * so nothing is boxed. The table is split into segments by key hash, each with
+ * its own lock, so threads only meet when they hit the same segment.
+ *
+ * Eviction is CLOCK, a cheap approximation of LRU: every hit sets a reference
+ * bit, and when a segment is full the hand clears bits until it finds an entry
+ * that was not used since its last pass.
+ *
+ * invalidate() empties the cache, e.g. after the street net changed. It also bumps
+ * a generation counter: price(), fare() and gridFare() note the generation before
+ * they compute a fare and drop it if the cache was invalidated meanwhile, so a fare
+ * of the old net never lands in the emptied cache.
+ */
+public class FareCache {
+	public static final int MISSING	= Integer.MIN_VALUE;
+
+	private static final int SEGMENTS	= 16;
+	private static final long EMPTY		= -1;
+	private static final int BITS		= 21;
+	private static final int MASK		= (1 << BITS) - 1;
+
+	private final Segment[] segments	= new Segment[SEGMENTS];
+	private final LongAdder hits		= new LongAdder();
+	private final LongAdder misses		= new LongAdder();
+	private final LongAdder evictions	= new LongAdder();
+	private final AtomicLong generation	= new AtomicLong();
+
+	//capacity is rounded up to a multiple of the segment count
+	public FareCache(int capacity) {
+		int perSegment = Math.max(1, (capacity + SEGMENTS - 1)/SEGMENTS);
+		for(int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(perSegment);
+		}
+	}
+
+	//net identifies the street net, for BithattenTarif grids its netSize
+	public static long key(int net, int start, int end) {
+		if(((net | start | end) & ~MASK) != 0) {
+			throw new IllegalArgumentException("does not fit into a key: " + net + " " + start + " " + end);
+		}
+		return (long)net << 2*BITS | (long)start << BITS | end;
+	}
+
+	//cached fare, MISSING if the pair is not in the cache
+	public int get(long key) {
+		int fare = segment(key).get(key);
+		if(fare == MISSING) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return fare;
+	}
+
+	public void put(long key, int fare) {
+		put(key, fare, generation.get());
+	}
+
+	//drops the fare if invalidate() was called since generation was read
+	private void put(long key, int fare, long generation) {
+		if(fare == MISSING) {
+			throw new IllegalArgumentException("cannot cache " + fare);
+		}
+		if(segment(key).put(key, fare, generation, this.generation)) {
+			evictions.increment();
+		}
+	}
+
+	//BithattenTarif.price() through the cache
+	public int price(int netSize, int start, int end) {
+		long key = key(netSize, start, end);
+		long g = generation.get();
+		int fare = get(key);
+		if(fare == MISSING) {
+			fare = BithattenTarif.price(netSize, start, end);
+			put(key, fare, g);
+		}
+		return fare;
+	}
+
+	//contraction hierarchy query through the cache, net must identify the hierarchy
+	public int fare(ContractionHierarchy ch, int net, int start, int end) {
+		long key = key(net, start, end);
+		long g = generation.get();
+		int fare = get(key);
+		if(fare == MISSING) {
+			fare = ch.fare(start, end);
+			put(key, fare, g);
+		}
+		return fare;
+	}
+
+	//contraction hierarchy of StreetNet.grid(netSize) through the cache, with
+	//BithattenTarif's row*10 + col numbering; shares its entries with price()
+	public int gridFare(ContractionHierarchy ch, int netSize, int start, int end) {
+		long key = key(netSize, start, end);
+		long g = generation.get();
+		int fare = get(key);
+		if(fare == MISSING) {
+			fare = ch.fare(StreetNet.gridNode(netSize, start), StreetNet.gridNode(netSize, end));
+			put(key, fare, g);
+		}
+		return fare;
+	}
+
+	public void invalidate() {
+		//bump first: a put that sees the old generation holds its segment's lock
+		//and is therefore cleared below
+		generation.incrementAndGet();
+		for(Segment s : segments) {
+			s.clear();
+		}
+	}
+
+	public long hits()	{ return hits.sum(); }
+	public long misses()	{ return misses.sum(); }
+	public long evictions()	{ return evictions.sum(); }
+
+	public int size() {
+		int size = 0;
+		for(Segment s : segments) {
+			size += s.size();
+		}
+		return size;
+	}
+
+	public double hitRate() {
+		long h = hits();
+		long total = h + misses();
+		return total == 0 ? 0 : (double)h/total;
+	}
+
+	private Segment segment(long key) {
+		return segments[(int)(mix(key) >>> 60) & (SEGMENTS - 1)];
+	}
+
+	//finalizer of SplitMix64, spreads neighbouring keys over the table
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static final class Segment {
+		private final int capacity;
+		private final long[] keys;
+		private final int[] fares;
+		private final boolean[] referenced;
+		private final int mask;
+		private int size	= 0;
+		private int hand	= 0;
+
+		Segment(int capacity) {
+			this.capacity = capacity;
+			int slots = Integer.highestOneBit(Math.max(2, 2*capacity - 1)) << 1;	//load factor at most 1/2
+			keys		= new long[slots];
+			fares		= new int[slots];
+			referenced	= new boolean[slots];
+			mask		= slots - 1;
+			Arrays.fill(keys, EMPTY);
+		}
+
+		synchronized int get(long key) {
+			for(int i = (int)mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+				if(keys[i] == key) {
+					referenced[i] = true;
+					return fares[i];
+				}
+			}
+			return MISSING;
+		}
+
+		//true if another entry had to go; nothing is stored once current moved past generation
+		synchronized boolean put(long key, int fare, long generation, AtomicLong current) {
+			if(current.get() != generation) {
+				return false;
+			}
+			int i = (int)mix(key) & mask;
+			for(; keys[i] != EMPTY; i = (i + 1) & mask) {
+				if(keys[i] == key) {
+					fares[i] = fare;
+					referenced[i] = true;
+					return false;
+				}
+			}
+			boolean evicted = false;
+			if(size == capacity) {
+				evict();
+				evicted = true;
+				//the deletion may have shifted the probe chain, search the free slot again
+				for(i = (int)mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+				}
+			}
+			keys[i]		= key;
+			fares[i]	= fare;
+			referenced[i]	= false;
+			size++;
+			return evicted;
+		}
+
+		//CLOCK: the first entry without reference bit goes
+		private void evict() {
+			while(true) {
+				hand = (hand + 1) & mask;
+				if(keys[hand] == EMPTY) {
+					continue;
+				}
+				if(referenced[hand]) {
+					referenced[hand] = false;
+				} else {
+					delete(hand);
+					return;
+				}
+			}
+		}
+
+		//backward shift deletion keeps the probe chains intact without tombstones
+		private void delete(int i) {
+			int j = i;
+			while(true) {
+				j = (j + 1) & mask;
+				if(keys[j] == EMPTY) {
+					break;
+				}
+				int home = (int)mix(keys[j]) & mask;
+				//move j back to i unless its home lies cyclically in (i, j]
+				if(i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+					keys[i]		= keys[j];
+					fares[i]	= fares[j];
+					referenced[i]	= referenced[j];
+					i = j;
+				}
+			}
+			keys[i] = EMPTY;
+			referenced[i] = false;
+			size--;
+		}
+
+		synchronized void clear() {
+			Arrays.fill(keys, EMPTY);
+			Arrays.fill(referenced, false);
+			size = 0;
+		}
+
+		synchronized int size() {
+			return size;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+import java.util.*;
+
+//binary min-heap of (key << 32 | node) entries for Dijkstra, keys must be non-negative ints
+final class LongHeap {
+	private long[] entries	= new long[64];
+	private int size	= 0;
+
+	void clear()		{ size = 0; }
+	boolean isEmpty()	{ return size == 0; }
+	int minKey()		{ return (int)(entries[0] >>> 32); }
+
+	void push(int key, int node) {
+		if(size == entries.length) {
+			entries = Arrays.copyOf(entries, 2*size);
+		}
+		long e = (long)key << 32 | (node & 0xFFFFFFFFL);
+		int i = size++;
+		while(i > 0 && entries[(i - 1)/2] > e) {
+			entries[i] = entries[(i - 1)/2];
+			i = (i - 1)/2;
+		}
+		entries[i] = e;
+	}
+
+	long pop() {
+		long top = entries[0];
+		long last = entries[--size];
+		int i = 0;
+		while(2*i + 1 < size) {
+			int c = 2*i + 1;
+			if(c + 1 < size && entries[c + 1] < entries[c]) {
+				c++;
+			}
+			if(entries[c] >= last) {
+				break;
+			}
+			entries[i] = entries[c];
+			i = c;
+		}
+		entries[i] = last;
+		return top;
+	}
+}
@@ -0,0 +1,161 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * A street net with numbered nodes 0..nodes-1 and streets with an integer cost.
+ * Streets are two-way unless they are added as oneway.
+ *
+ * File format, one entry per line, '#' starts a comment:
+ *   nodes			first line: number of nodes
+ *   from to cost		two-way street
+ *   from to cost oneway	oneway street
+ */
+public class StreetNet {
+	private final int nodes;
+	private int streets		= 0;
+	private int[] from		= new int[16];
+	private int[] to		= new int[16];
+	private int[] cost		= new int[16];
+	private boolean[] oneway	= new boolean[16];
+
+	public StreetNet(int nodes) {
+		this.nodes = nodes;
+	}
+
+	public void street(int a, int b, int c) {
+		add(a, b, c, false);
+	}
+
+	public void oneway(int a, int b, int c) {
+		add(a, b, c, true);
+	}
+
+	private void add(int a, int b, int c, boolean o) {
+		if(a < 0 || a >= nodes || b < 0 || b >= nodes) {
+			throw new IllegalArgumentException("no such node: " + a + " -> " + b);
+		}
+		if(c < 0) {
+			throw new IllegalArgumentException("negative cost: " + a + " -> " + b);
+		}
+		if(streets == from.length) {
+			from	= Arrays.copyOf(from, 2*streets);
+			to	= Arrays.copyOf(to, 2*streets);
+			cost	= Arrays.copyOf(cost, 2*streets);
+			oneway	= Arrays.copyOf(oneway, 2*streets);
+		}
+		from[streets]	= a;
+		to[streets]	= b;
+		cost[streets]	= c;
+		oneway[streets]	= o;
+		streets++;
+	}
+
+	public int nodes()		{ return nodes; }
+	public int streets()		{ return streets; }
+	public int from(int i)		{ return from[i]; }
+	public int to(int i)		{ return to[i]; }
+	public int cost(int i)		{ return cost[i]; }
+	public boolean oneway(int i)	{ return oneway[i]; }
+
+	public static StreetNet read(File file) throws IOException {
+		try(BufferedReader in = new BufferedReader(new FileReader(file))) {
+			StreetNet net = null;
+			int lineNumber = 0;
+			for(String line = in.readLine(); line != null; line = in.readLine()) {
+				lineNumber++;
+				int hash = line.indexOf('#');
+				if(hash >= 0) {
+					line = line.substring(0, hash);
+				}
+				line = line.trim();
+				if(line.isEmpty()) {
+					continue;
+				}
+				String[] f = line.split("\\s+");
+				try {
+					if(net == null) {
+						net = new StreetNet(Integer.parseInt(f[0]));
+					} else if(f.length == 3) {
+						net.street(Integer.parseInt(f[0]), Integer.parseInt(f[1]), Integer.parseInt(f[2]));
+					} else if(f.length == 4 && f[3].equals("oneway")) {
+						net.oneway(Integer.parseInt(f[0]), Integer.parseInt(f[1]), Integer.parseInt(f[2]));
+					} else {
+						throw new IOException(file + ":" + lineNumber + ": expected 'from to cost [oneway]'");
+					}
+				} catch(IllegalArgumentException e) {
+					throw new IOException(file + ":" + lineNumber + ": " + e.getMessage());
+				}
+			}
+			if(net == null) {
+				throw new IOException(file + ": empty street net");
+			}
+			return net;
+		}
+	}
+
+	public void write(File file) throws IOException {
+		try(PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+			out.println(nodes);
+			for(int i = 0; i < streets; i++) {
+				out.println(from[i] + " " + to[i] + " " + cost[i] + (oneway[i] ? " oneway" : ""));
+			}
+			if(out.checkError()) {
+				throw new IOException("could not write " + file);
+			}
+		}
+	}
+
+	/**
+	 * The square grid BithattenTarif works on. Node row*netSize + col is the crossing
+	 * in row row and column col, neighbouring crossings are 1 apart.
+	 * gridNode() and crossing() convert from and to BithattenTarif's row*10 + col.
+	 * The outer ring is node netSize*netSize: boarding it is free from the first row
+	 * and the first column, and it drops you anywhere on the last row for free.
+	 * Shortest paths in this net cost exactly BithattenTarif.price().
+	 */
+	public static StreetNet grid(int netSize) {
+		int ring = netSize*netSize;
+		StreetNet net = new StreetNet(ring + 1);
+		for(int i = 0; i < netSize; i++) {
+			for(int j = 0; j < netSize; j++) {
+				int node = i*netSize + j;
+				if(j + 1 < netSize) {
+					net.street(node, node + 1, 1);
+				}
+				if(i + 1 < netSize) {
+					net.street(node, node + netSize, 1);
+				}
+				if(i == 0 || j == 0) {
+					net.oneway(node, ring, 0);
+				}
+				if(i == netSize - 1) {
+					net.oneway(ring, node, 0);
+				}
+			}
+		}
+		return net;
+	}
+
+	//grid() node of the BithattenTarif crossing row*10 + col
+	public static int gridNode(int netSize, int crossing) {
+		int row = crossing/10;
+		int col = crossing%10;
+		if(netSize < 1 || netSize > 10 || crossing < 0 || row >= netSize || col >= netSize) {
+			throw new IllegalArgumentException("no crossing " + crossing + " on a " + netSize + "x" + netSize + " grid");
+		}
+		return row*netSize + col;
+	}
+
+	//BithattenTarif crossing row*10 + col of a grid() node, the outer ring has none
+	public static int crossing(int netSize, int gridNode) {
+		if(netSize < 1 || netSize > 10 || gridNode < 0 || gridNode >= netSize*netSize) {
+			throw new IllegalArgumentException("no crossing at node " + gridNode + " of a " + netSize + "x" + netSize + " grid");
+		}
+		return gridNode/netSize*10 + gridNode%netSize;
+	}
+
+	//java StreetNet netSize file	writes the BithattenTarif grid
+	public static void main(String args[]) throws IOException {
+		grid(Integer.parseInt(args[0])).write(new File(args[1]));
+	}
+}
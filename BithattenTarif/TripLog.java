@@ -0,0 +1,214 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Prices and sums up a whole day of trips at once.
+ *
+ * A trip log is a little-endian binary file:
+ *   magic, version, netSize, trips (as long),
+ *   start[trips], end[trips]
+ * Nodes are numbered like in BithattenTarif, row*10 + column.
+ *
+ * The columns are mapped chunk by chunk, so the log may be larger than 2 GB and
+ * is never read through the Java heap twice. Chunks are priced in parallel, each
+ * into its own histogram and zone totals, which are added up at the end.
+ * The fare kernel is the same rule as BithattenTarif.price(), written with min and
+ * abs only, so the loop has no branches, and with a multiply-shift instead of the
+ * division by 10. It also checks the node range on the way, the slow check() only
+ * runs to name a bad trip.
+ */
+public class TripLog {
+	private static final int MAGIC		= 0x4C544842;	//"BHTL" read little-endian
+	private static final int VERSION	= 1;
+	private static final int HEADER		= 20;
+	private static final int CHUNK		= 1 << 20;	//trips per chunk
+
+	private final File file;
+	private final int netSize;
+	private final long trips;
+
+	public static final class Totals {
+		public long trips	= 0;
+		public long revenue	= 0;
+		public final long[] histogram;	//trips per fare
+		public final long[] zones;	//revenue per start node
+
+		Totals(int netSize) {
+			histogram	= new long[2*netSize - 1];
+			zones		= new long[10*netSize];
+		}
+
+		Totals add(Totals other) {
+			trips	+= other.trips;
+			revenue	+= other.revenue;
+			for(int i = 0; i < histogram.length; i++) {
+				histogram[i] += other.histogram[i];
+			}
+			for(int i = 0; i < zones.length; i++) {
+				zones[i] += other.zones[i];
+			}
+			return this;
+		}
+	}
+
+	public TripLog(File file) throws IOException {
+		this.file = file;
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER, channel.size())).order(ByteOrder.LITTLE_ENDIAN);
+			if(header.limit() < HEADER || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException(file + ": not a trip log");
+			}
+			netSize	= header.getInt(8);
+			trips	= header.getLong(12);
+			if(netSize < 1 || netSize > 10) {
+				throw new IOException(file + ": net size " + netSize + " out of range 1..10");
+			}
+			long size;
+			try {
+				size = Math.addExact(HEADER, Math.multiplyExact(8, trips));
+			} catch(ArithmeticException e) {
+				throw new IOException(file + ": " + trips + " trips do not fit into a file", e);
+			}
+			if(trips < 0 || channel.size() != size) {
+				throw new IOException(file + ": truncated trip log");
+			}
+		}
+	}
+
+	public int netSize()	{ return netSize; }
+	public long trips()	{ return trips; }
+
+	public Totals price() throws IOException {
+		int chunks = (int)((trips + CHUNK - 1)/CHUNK);
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return IntStream.range(0, chunks).parallel()
+				.mapToObj(c -> chunk(channel, c))
+				.reduce(Totals::add)
+				.orElseGet(() -> new Totals(netSize));
+		} catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private Totals chunk(FileChannel channel, int chunk) {
+		long first = (long)chunk*CHUNK;
+		int n = (int)Math.min(CHUNK, trips - first);
+		int[] start = new int[n];
+		int[] end = new int[n];
+		int[] fare = new int[n];
+		try {
+			channel.map(FileChannel.MapMode.READ_ONLY, HEADER + 4*first, 4L*n)
+				.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(start);
+			channel.map(FileChannel.MapMode.READ_ONLY, HEADER + 4*trips + 4*first, 4L*n)
+				.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(end);
+			if(fares(netSize, start, end, fare, n) < 0) {
+				check(start, first);
+				check(end, first);
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		Totals t = new Totals(netSize);
+		t.trips = n;
+		for(int i = 0; i < n; i++) {
+			t.revenue += fare[i];
+			t.histogram[fare[i]]++;
+			t.zones[start[i]] += fare[i];
+		}
+		return t;
+	}
+
+	//finds the bad node fares() noticed, the histograms must not see it
+	private void check(int[] nodes, long first) throws IOException {
+		for(int i = 0; i < nodes.length; i++) {
+			int node = nodes[i];
+			if(node < 0 || node/10 >= netSize || node%10 >= netSize) {
+				throw new IOException(file + ": trip " + (first + i) + " has node " + node
+						      + " outside the " + netSize + "x" + netSize + " net");
+			}
+		}
+	}
+
+	//branch-free BithattenTarif.price() for n trips; negative if a node lies outside
+	//the net, then some fares are garbage
+	static int fares(int netSize, int[] start, int[] end, int[] fare, int n) {
+		int bad = 0;
+		for(int i = 0; i < n; i++) {
+			int s			= start[i];
+			int e			= end[i];
+			int decileRankStart	= s*103 >>> 10;	//s/10 for 0..99
+			int unitPositionStart	= s - 10*decileRankStart;
+			int decileRankEnd	= e*103 >>> 10;
+			int unitPositionEnd	= e - 10*decileRankEnd;
+			int price		= Math.abs(decileRankStart - decileRankEnd) + Math.abs(unitPositionStart - unitPositionEnd);
+			int outerCirclePrice	= Math.min(decileRankStart, unitPositionStart) + netSize-1 - decileRankEnd;
+			fare[i] = Math.min(price, outerCirclePrice);
+			//the sign bit survives if any node is below 0, above 99 or off the net
+			bad |= s | e | 99 - s | 99 - e
+				| netSize-1 - decileRankStart | netSize-1 - unitPositionStart
+				| netSize-1 - decileRankEnd | netSize-1 - unitPositionEnd;
+		}
+		return bad;
+	}
+
+	public static void write(File file, int netSize, int[] start, int[] end) throws IOException {
+		if(start.length != end.length) {
+			throw new IllegalArgumentException("start and end differ in length");
+		}
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(netSize).putLong(start.length).flip();
+			writeFully(channel, header);
+			for(int[] column : new int[][] {start, end}) {
+				ByteBuffer b = ByteBuffer.allocate(4*column.length).order(ByteOrder.LITTLE_ENDIAN);
+				b.asIntBuffer().put(column);
+				writeFully(channel, b);
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer b) throws IOException {
+		while(b.hasRemaining()) {
+			channel.write(b);
+		}
+	}
+
+	//java TripLog random file netSize trips	writes random trips
+	//java TripLog price file			prints revenue, histogram and zone totals
+	public static void main(String args[]) throws IOException {
+		File file = new File(args[1]);
+		if(args[0].equals("random")) {
+			int netSize	= Integer.parseInt(args[2]);
+			int n		= Integer.parseInt(args[3]);
+			Random random	= new Random(42);
+			int[] start	= new int[n];
+			int[] end	= new int[n];
+			for(int i = 0; i < n; i++) {
+				start[i] = random.nextInt(netSize)*10 + random.nextInt(netSize);
+				end[i] = random.nextInt(netSize)*10 + random.nextInt(netSize);
+			}
+			write(file, netSize, start, end);
+			return;
+		}
+		TripLog log = new TripLog(file);
+		long t0 = System.nanoTime();
+		Totals t = log.price();
+		long ms = (System.nanoTime() - t0)/1000000;
+		System.out.printf("trips\t%d%nrevenue\t%d%nms\t%d%n", t.trips, t.revenue, ms);
+		System.out.println("fare\ttrips");
+		for(int i = 0; i < t.histogram.length; i++) {
+			System.out.printf("%d\t%d%n", i, t.histogram[i]);
+		}
+		System.out.println("zone\trevenue");
+		for(int i = 0; i < t.zones.length; i++) {
+			if(i%10 < log.netSize()) {
+				System.out.printf("%d\t%d%n", i, t.zones[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,354 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.awt.*;
+import java.awt.image.*;
+import javax.imageio.*;
+import javax.imageio.metadata.*;
+import javax.imageio.stream.*;
+
+/** Nimmt Einzelbilder einer Zeichenflaeche auf und schreibt sie in einem
+  * eigenen Thread als Animation.
+  * Die Bilder laufen durch einen Ring aus wenigen, wiederverwendeten Puffern.
+  * In einen Puffer werden nur die Kacheln kopiert, die sich geaendert haben,
+  * seit er zuletzt gefuellt wurde.
+  * Ist der Schreiber im Rueckstand, wartet die Aufnahme auf einen freien
+  * Puffer; der Speicherbedarf bleibt so begrenzt.
+  *
+  * <p>Endet der Dateiname auf .gif, entsteht ein animiertes GIF.
+  * Sonst muss er ein Formatmuster fuer die Bildnummer enthalten,
+  * zum Beispiel frame%05d.png, und jedes Bild wird eine eigene Datei.
+  */
+public class Animation
+{
+    /** Startet eine Aufnahme.
+      * @param filename Name des GIF oder Muster fuer die Einzelbilder.
+      * @param w Breite in Pixel.
+      * @param h Hoehe in Pixel.
+      * @param delay Anzeigedauer pro Bild in Millisekunden, nur fuer GIF.
+      * @throws IllegalArgumentException wenn das Muster keine Bildnummer einsetzt.
+      */
+    public Animation(String filename, int w, int h, int delay) throws IOException
+    {
+	boolean isGif = filename.toLowerCase().endsWith(".gif");
+	if(!isGif)
+	    checkPattern(filename);
+	this.filename = filename;
+	width = w;
+	height = h;
+	this.delay = delay;
+	tilesX = (w + TILE - 1)/TILE;
+	tilesY = (h + TILE - 1)/TILE;
+	tileVersion = new int[tilesX*tilesY];
+	for(int i = 0; i < BUFFERS; i++)
+	    free.add(new Slot(new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB)));
+	if(isGif)
+	    openGif();
+	encoder = new Thread(this::encode, "Animation");
+	encoder.setDaemon(true);
+	encoder.start();
+    }
+
+    /** Merkt sich ein Rechteck als geaendert.
+      * @param left Linke Pixelspalte.
+      * @param top Obere Pixelzeile.
+      * @param right Rechte Pixelspalte.
+      * @param bottom Untere Pixelzeile.
+      */
+    public void touch(int left, int top, int right, int bottom)
+    {
+	for(int ty = top/TILE; ty <= bottom/TILE; ty++)
+	    for(int tx = left/TILE; tx <= right/TILE; tx++)
+		tileVersion[ty*tilesX + tx] = epoch;
+    }
+
+    /** Nimmt ein Bild auf und uebergibt es dem Schreiber.
+      * @param source Die Zeichenflaeche.
+      */
+    public void capture(BufferedImage source) throws IOException
+    {
+	check();
+	Slot f;
+	try
+	{
+	    while((f = free.poll(100, TimeUnit.MILLISECONDS)) == null)
+		if(!encoder.isAlive())
+		{
+		    check();
+		    throw new IOException("Der Schreiber ist beendet");
+		}
+	}
+	catch(InterruptedException ex)
+	{
+	    Thread.currentThread().interrupt();
+	    throw new InterruptedIOException();
+	}
+	for(int ty = 0; ty < tilesY; ty++)
+	    for(int tx = 0; tx < tilesX; tx++)
+		if(tileVersion[ty*tilesX + tx] > f.version)
+		{
+		    int x = tx*TILE;
+		    int y = ty*TILE;
+		    int x1 = Math.min(width, x + TILE);
+		    int y1 = Math.min(height, y + TILE);
+		    f.gc.drawImage(source, x, y, x1, y1, x, y, x1, y1, null);
+		}
+	f.version = epoch++;
+	f.index = frames++;
+	full.add(f);
+    }
+
+    /** Wartet, bis alle Bilder geschrieben sind, und schliesst die Ausgabe.
+      * @throws IOException wenn beim Schreiben ein Fehler aufgetreten ist.
+      */
+    public void close() throws IOException
+    {
+	full.add(END);
+	try
+	{
+	    encoder.join();
+	}
+	catch(InterruptedException ex)
+	{
+	    Thread.currentThread().interrupt();
+	    throw new InterruptedIOException();
+	}
+	check();
+    }
+
+    /** Liefert die Anzahl aufgenommener Bilder.
+      * @return Anzahl Bilder.
+      */
+    public int frames()
+    {
+	return frames;
+    }
+
+    /** Laeuft im eigenen Thread und schreibt die Bilder der Reihe nach.
+      * Jeder Fehler wird in error festgehalten und der Puffer trotzdem
+      * zurueckgegeben, damit die Aufnahme nie auf ihn wartet.
+      */
+    private void encode()
+    {
+	try
+	{
+	    for(Slot f = full.take(); f != END; f = full.take())
+	    {
+		try
+		{
+		    if(error == null)
+		    {
+			long start = System.nanoTime();
+			long bytes = write(f);
+			metrics.frame(System.nanoTime() - start, bytes);
+		    }
+		}
+		catch(IOException ex)
+		{
+		    error = ex;
+		}
+		catch(RuntimeException ex)
+		{
+		    error = new IOException("Bild " + f.index + " nicht geschrieben", ex);
+		}
+		finally
+		{
+		    free.add(f);
+		}
+	    }
+	    if(gif != null)
+	    {
+		gif.endWriteSequence();
+		gifStream.close();
+		gif.dispose();
+	    }
+	}
+	catch(IOException ex)
+	{
+	    if(error == null)
+		error = ex;
+	}
+	catch(RuntimeException ex)
+	{
+	    if(error == null)
+		error = new IOException(ex);
+	}
+	catch(InterruptedException ex)
+	{
+	    error = new InterruptedIOException();
+	}
+    }
+
+    /** Schreibt ein Bild.
+      * @return Anzahl geschriebener Bytes.
+      */
+    private long write(Slot f) throws IOException
+    {
+	if(gif != null)
+	{
+	    long start = gifStream.getStreamPosition();
+	    gif.writeToSequence(new IIOImage(f.image, null, gifMetadata(f.index == 0)), null);
+	    return gifStream.getStreamPosition() - start;
+	}
+	File file = new File(String.format(filename, f.index));
+	String extension = file.getName().substring(file.getName().lastIndexOf('.') + 1);
+	if(!ImageIO.write(f.image, extension, file))
+	    throw new IOException("Kein Bildformat fuer " + extension);
+	return file.length();
+    }
+
+    /** Prueft ein Muster fuer Einzelbilder, indem es die ersten beiden
+      * Bildnummern einsetzt.
+      */
+    private static void checkPattern(String pattern)
+    {
+	try
+	{
+	    if(String.format(pattern, 0).equals(String.format(pattern, 1)))
+		throw new IllegalArgumentException("Das Muster setzt keine Bildnummer ein: " + pattern);
+	}
+	catch(IllegalFormatException ex)
+	{
+	    throw new IllegalArgumentException("Kein gueltiges Muster fuer die Bildnummer: " + pattern, ex);
+	}
+    }
+
+    private void openGif() throws IOException
+    {
+	gif = ImageIO.getImageWritersBySuffix("gif").next();
+	gifStream = ImageIO.createImageOutputStream(new File(filename));
+	gif.setOutput(gifStream);
+	gif.prepareWriteSequence(null);
+    }
+
+    /** Baut die Metadaten fuer ein GIF-Bild: Anzeigedauer und, beim ersten
+      * Bild, die Endlosschleife.
+      */
+    private IIOMetadata gifMetadata(boolean first) throws IOException
+    {
+	ImageTypeSpecifier type = ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_ARGB);
+	IIOMetadata meta = gif.getDefaultImageMetadata(type, null);
+	String format = meta.getNativeMetadataFormatName();
+	IIOMetadataNode root = (IIOMetadataNode)meta.getAsTree(format);
+
+	IIOMetadataNode gce = child(root, "GraphicControlExtension");
+	gce.setAttribute("disposalMethod", "none");
+	gce.setAttribute("userInputFlag", "FALSE");
+	gce.setAttribute("transparentColorFlag", "FALSE");
+	gce.setAttribute("delayTime", Integer.toString(delay/10));
+	gce.setAttribute("transparentColorIndex", "0");
+
+	if(first)
+	{
+	    IIOMetadataNode apps = child(root, "ApplicationExtensions");
+	    IIOMetadataNode app = new IIOMetadataNode("ApplicationExtension");
+	    app.setAttribute("applicationID", "NETSCAPE");
+	    app.setAttribute("authenticationCode", "2.0");
+	    app.setUserObject(new byte[] {1, 0, 0});
+	    apps.appendChild(app);
+	}
+	meta.setFromTree(format, root);
+	return meta;
+    }
+
+    /** Sucht einen Kindknoten und legt ihn an, wenn es ihn noch nicht gibt. */
+    private static IIOMetadataNode child(IIOMetadataNode root, String name)
+    {
+	for(int i = 0; i < root.getLength(); i++)
+	    if(root.item(i).getNodeName().equals(name))
+		return (IIOMetadataNode)root.item(i);
+	IIOMetadataNode node = new IIOMetadataNode(name);
+	root.appendChild(node);
+	return node;
+    }
+
+    /** Meldet einen Fehler des Schreibers. */
+    private void check() throws IOException
+    {
+	if(error != null)
+	    throw error;
+    }
+
+    /** Ein Puffer im Ring. */
+    private static class Slot
+    {
+	Slot(BufferedImage bi)
+	{
+	    image = bi;
+	    if(bi != null)
+	    {
+		gc = bi.createGraphics();
+		gc.setComposite(AlphaComposite.Src);
+	    }
+	    else
+		gc = null;
+	}
+
+	final BufferedImage image;
+
+	final Graphics2D gc;
+
+	/** Stand der Kacheln, als der Puffer zuletzt gefuellt wurde. */
+	int version = -1;
+
+	/** Nummer des Bildes. */
+	int index;
+    }
+
+    /** Die Zaehler fuer alle Zeichenflaechen. */
+    private static final PainterMetrics metrics = PainterMetrics.get();
+
+    /** Kantenlaenge der Kacheln in Pixel. */
+    private static final int TILE = 64;
+
+    /** Anzahl Puffer im Ring. */
+    private static final int BUFFERS = 3;
+
+    /** Markiert das Ende der Aufnahme. */
+    private static final Slot END = new Slot(null);
+
+    /** Name des GIF oder Muster fuer die Einzelbilder. */
+    private final String filename;
+
+    /** Breite in Pixel. */
+    private final int width;
+
+    /** Hoehe in Pixel. */
+    private final int height;
+
+    /** Anzeigedauer pro Bild in Millisekunden. */
+    private final int delay;
+
+    /** Anzahl Kacheln quer. */
+    private final int tilesX;
+
+    /** Anzahl Kacheln hoch. */
+    private final int tilesY;
+
+    /** Pro Kachel der Stand ihrer letzten Aenderung. */
+    private final int[] tileVersion;
+
+    /** Aktueller Stand; Aenderungen bekommen diese Nummer. */
+    private int epoch = 1;
+
+    /** Anzahl aufgenommener Bilder. */
+    private int frames;
+
+    /** Freie Puffer. */
+    private final BlockingQueue<Slot> free = new ArrayBlockingQueue<Slot>(BUFFERS);
+
+    /** Gefuellte Puffer, die noch geschrieben werden muessen. */
+    private final BlockingQueue<Slot> full = new ArrayBlockingQueue<Slot>(BUFFERS + 1);
+
+    /** Der Thread, der die Bilder schreibt. */
+    private final Thread encoder;
+
+    /** Schreibt das GIF, wenn nicht null. */
+    private ImageWriter gif;
+
+    /** Die GIF-Datei. */
+    private ImageOutputStream gifStream;
+
+    /** Erster Fehler des Schreibers. */
+    private volatile IOException error;
+}
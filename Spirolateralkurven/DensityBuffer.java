@@ -0,0 +1,84 @@
+/** Zaehlpuffer fuer den Dichtemodus.
+  * Linien werden nicht gemalt, sondern mit dem Algorithmus von Xiaolin Wu
+  * als Deckungsgrad in ein float-Array aufsummiert.
+  * Erst beim Anzeigen wird die Dichte ueber einen Farbverlauf in Farben
+  * umgerechnet.
+  * Oft uebermalte Pixel werden so sichtbar, statt verloren zu gehen.
+  */
+public class DensityBuffer extends WuLine
+{
+    /** Legt einen leeren Puffer an.
+      * @param w Breite in Pixel.
+      * @param h Hoehe in Pixel.
+      */
+    public DensityBuffer(int w, int h)
+    {
+	super(w, h);
+	hits = new float[w*h];
+    }
+
+    /** Setzt alle Zaehler auf 0. */
+    public void clear()
+    {
+	java.util.Arrays.fill(hits, 0);
+    }
+
+    /** Summiert eine Linie auf.
+      * Endpunkte duerfen ausserhalb liegen, es wird nur innerhalb gezaehlt.
+      * @param x0 Horizontale Pixelkoordinate des ersten Punktes.
+      * @param y0 Vertikale Pixelkoordinate des ersten Punktes.
+      * @param x1 Horizontale Pixelkoordinate des zweiten Punktes.
+      * @param y1 Vertikale Pixelkoordinate des zweiten Punktes.
+      */
+    public void line(double x0, double y0, double x1, double y1)
+    {
+	wu(x0, y0, x1, y1);
+    }
+
+    /** Rechnet die Dichte in Farben um.
+      * Die Dichte wird logarithmisch auf [0, 1] abgebildet, damit auch
+      * selten getroffene Pixel neben sehr oft getroffenen sichtbar bleiben.
+      * Pixel mit einem Deckungsgrad unter 1 werden mit dem Hintergrund gemischt.
+      * @param shades Farbverlauf, in dem {@link Shades#gradient} eingeschaltet ist.
+      * @param background Hintergrundfarbe 0xAARRGGBB fuer nicht getroffene Pixel.
+      * @param dest Ziel mit width*height Pixeln in der Darstellung 0xAARRGGBB.
+      */
+    public void toneMap(Shades shades, int background, int[] dest)
+    {
+	float max = 0;
+	for(float h: hits)
+	    max = Math.max(max, h);
+	double norm = max > 0?  1/Math.log1p(max):  0;
+	for(int i = 0; i < hits.length; i++)
+	{
+	    float h = hits[i];
+	    if(h <= 0)
+		dest[i] = background;
+	    else
+	    {
+		int c = shades.gradientRgb(Math.log1p(h)*norm);
+		dest[i] = h >= 1?  c:  Shades.lerp(background, c, (int)(h*256));
+	    }
+	}
+    }
+
+    /** Liefert den Deckungsgrad eines Pixels.
+      * @param x Horizontale Pixelkoordinate.
+      * @param y Vertikale Pixelkoordinate.
+      * @return Aufsummierter Deckungsgrad, 1 = einmal voll getroffen.
+      */
+    public float get(int x, int y)
+    {
+	return hits[y*width + x];
+    }
+
+    /** Zaehlt den Deckungsgrad eines Pixels dazu. */
+    protected void cover(int x, int y, double c)
+    {
+	if(x >= 0  &&  x < width  &&  y >= 0  &&  y < height)
+	    hits[y*width + x] += (float)c;
+    }
+
+    /** Aufsummierter Deckungsgrad pro Pixel, zeilenweise von links oben. */
+    private final float[] hits;
+}
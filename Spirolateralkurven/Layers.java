@@ -0,0 +1,195 @@
+import java.util.*;
+import java.util.stream.*;
+import java.awt.*;
+import java.awt.image.*;
+
+/** Benannte Ebenen einer Zeichenflaeche.
+  * Jede Ebene hat ein eigenes, zunaechst durchsichtiges Pixelbild.
+  * Zum Anzeigen und Speichern werden die sichtbaren Ebenen in der
+  * Reihenfolge ihres Anlegens uebereinander gelegt, die zuerst angelegte zuunterst.
+  *
+  * <p>Das zusammengesetzte Bild bleibt gespeichert. Jede Ebene merkt sich die
+  * Pixelzeilen, die seit dem letzten Zusammensetzen bemalt wurden, und nur diese
+  * Zeilen werden neu berechnet. Wird nur die Beschriftung geaendert, muss eine
+  * Ebene mit Millionen Strichen also nicht neu gezeichnet werden.
+  * Die Zeilen werden in Baendern auf alle Prozessoren verteilt.
+  */
+public class Layers
+{
+    /** Legt eine Ebenenliste ohne Ebenen an.
+      * @param w Breite in Pixel.
+      * @param h Hoehe in Pixel.
+      */
+    public Layers(int w, int h)
+    {
+	width = w;
+	height = h;
+    }
+
+    /** Liefert eine Ebene und legt sie an, falls es sie noch nicht gibt.
+      * Neue Ebenen kommen oben auf alle anderen.
+      * @param name Name der Ebene.
+      * @return Die Ebene.
+      */
+    public synchronized Layer layer(String name)
+    {
+	Layer l = layers.get(name);
+	if(l == null)
+	{
+	    l = new Layer(name, width, height);
+	    layers.put(name, l);
+	    order = layers.values().toArray(new Layer[0]);
+	}
+	return l;
+    }
+
+    /** Blendet eine Ebene ein oder aus.
+      * @param name Name der Ebene.
+      * @param on true = einblenden, false = ausblenden.
+      */
+    public synchronized void visible(String name, boolean on)
+    {
+	Layer l = layers.get(name);
+	if(l == null  ||  l.visible == on)
+	    return;
+	l.visible = on;
+	l.touch(0, height - 1);
+    }
+
+    /** Liefert die Namen aller Ebenen von unten nach oben.
+      * @return Namen.
+      */
+    public synchronized java.util.List<String> names()
+    {
+	return new ArrayList<String>(layers.keySet());
+    }
+
+    /** Setzt die geaenderten Zeilen aller Ebenen neu zusammen.
+      * Ist seit dem letzten Aufruf nichts gemalt worden, passiert nichts.
+      * @param target Das zusammengesetzte Bild, zeilenweise 0xAARRGGBB.
+      * @return Neu berechnete Zeilen als {oberste, unterste}, null wenn keine.
+      */
+    public int[] flatten(int[] target)
+    {
+	Layer[] all;
+	int top = Integer.MAX_VALUE;
+	int bottom = Integer.MIN_VALUE;
+	synchronized(this)
+	{
+	    all = order;
+	    for(Layer l : all)
+	    {
+		synchronized(l)
+		{
+		    top = Math.min(top, l.dirtyTop);
+		    bottom = Math.max(bottom, l.dirtyBottom);
+		    l.dirtyTop = Integer.MAX_VALUE;
+		    l.dirtyBottom = Integer.MIN_VALUE;
+		}
+	    }
+	}
+	if(bottom < top)
+	    return null;
+	int[][] visible = Arrays.stream(all).filter(l -> l.visible).map(l -> l.pixels).toArray(int[][]::new);
+	int first = top;
+	int end = bottom + 1;
+	int rows = end - first;
+	int band = Math.max(BAND, rows/(4*Runtime.getRuntime().availableProcessors()) + 1);
+	IntStream.range(0, (rows + band - 1)/band).parallel()
+	    .forEach(b -> composite(visible, target, (first + b*band)*width, Math.min(first + (b + 1)*band, end)*width));
+	return new int[] {top, bottom};
+    }
+
+    /** Legt die Pixel [from, to) aller Ebenen uebereinander.
+      * Die Ebenen sind nicht vormultipliziert, wie TYPE_INT_ARGB.
+      */
+    private static void composite(int[][] visible, int[] target, int from, int to)
+    {
+	for(int i = from; i < to; i++)
+	{
+	    int dst = 0;
+	    for(int[] pixels : visible)
+	    {
+		int src = pixels[i];
+		int sa = src >>> 24;
+		if(sa == 255)
+		    dst = src;
+		else if(sa != 0)
+		    dst = over(src, sa, dst);
+	    }
+	    target[i] = dst;
+	}
+    }
+
+    /** Porter-Duff SrcOver fuer nicht vormultiplizierte Farben. */
+    private static int over(int src, int sa, int dst)
+    {
+	int f = (dst >>> 24)*(255 - sa);
+	int den = 255*sa + f;
+	if(den == 0)
+	    return 0;
+	int s = 255*sa;
+	int r = ((src >> 16 & 255)*s + (dst >> 16 & 255)*f + den/2)/den;
+	int g = ((src >> 8 & 255)*s + (dst >> 8 & 255)*f + den/2)/den;
+	int b = ((src & 255)*s + (dst & 255)*f + den/2)/den;
+	return (den + 127)/255 << 24 | r << 16 | g << 8 | b;
+    }
+
+    /** Eine Ebene mit eigenem Pixelbild und Graphicskontext. */
+    public static class Layer
+    {
+	Layer(String n, int w, int h)
+	{
+	    name = n;
+	    image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+	    pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+	    graphics = image.createGraphics();
+	}
+
+	/** Merkt sich Pixelzeilen als bemalt.
+	  * @param top Oberste Zeile.
+	  * @param bottom Unterste Zeile.
+	  */
+	public synchronized void touch(int top, int bottom)
+	{
+	    dirtyTop = Math.min(dirtyTop, top);
+	    dirtyBottom = Math.max(dirtyBottom, bottom);
+	}
+
+	/** Der Name. */
+	public final String name;
+
+	/** Das Pixelbild, ausserhalb des Gemalten durchsichtig. */
+	public final BufferedImage image;
+
+	/** Die Pixel des Bildes, zeilenweise 0xAARRGGBB. */
+	public final int[] pixels;
+
+	/** Der Graphicskontext des Bildes. */
+	public final Graphics2D graphics;
+
+	/** false, wenn die Ebene ausgeblendet ist. */
+	private volatile boolean visible = true;
+
+	/** Bemalte Zeilen seit dem letzten Zusammensetzen, leer wenn unten < oben. */
+	private int dirtyTop = Integer.MAX_VALUE;
+
+	/** Bemalte Zeilen seit dem letzten Zusammensetzen. */
+	private int dirtyBottom = Integer.MIN_VALUE;
+    }
+
+    /** Mindestzahl Zeilen pro Band. */
+    private static final int BAND = 16;
+
+    /** Breite in Pixel. */
+    private final int width;
+
+    /** Hoehe in Pixel. */
+    private final int height;
+
+    /** Die Ebenen nach Namen in der Reihenfolge ihres Anlegens. */
+    private final LinkedHashMap<String, Layer> layers = new LinkedHashMap<String, Layer>();
+
+    /** Die Ebenen von unten nach oben. */
+    private Layer[] order = new Layer[0];
+}
@@ -0,0 +1,304 @@
+/** Zeichnet Linien direkt in die Pixel eines Bildes, ohne Java2D.
+  * Duenne Linien werden mit Bresenham oder, mit Kantenglaettung,
+  * nach Xiaolin Wu gezeichnet. Breitere Linien werden zeilenweise als Kapsel
+  * mit runden Enden gefuellt.
+  * Es werden keine Objekte angelegt.
+  *
+  * <p>Die Farben werden ueber den Hintergrund gemischt. Das Ergebnis ist
+  * exakt, solange der Hintergrund deckend ist, wie nach Painter.clear().
+  */
+public class LineRasterizer extends WuLine
+{
+    /** Erzeugt einen Rasterer fuer ein Pixelarray.
+      * @param p Pixel zeilenweise von links oben in der Darstellung 0xAARRGGBB.
+      * @param w Breite in Pixel.
+      * @param h Hoehe in Pixel.
+      */
+    public LineRasterizer(int[] p, int w, int h)
+    {
+	super(w, h);
+	pixels = p;
+    }
+
+    /** Zeichnet eine Linie.
+      * Die Pixelmitten liegen auf ganzen Koordinaten.
+      * @param x0 Horizontale Pixelkoordinate des ersten Punktes.
+      * @param y0 Vertikale Pixelkoordinate des ersten Punktes.
+      * @param x1 Horizontale Pixelkoordinate des zweiten Punktes.
+      * @param y1 Vertikale Pixelkoordinate des zweiten Punktes.
+      * @param w Linienbreite in Pixel.
+      * @param argb Farbe in der Darstellung 0xAARRGGBB.
+      * @param aa true = Kanten glaetten.
+      * @return false, wenn die Linie breiter als {@link #MAX_WIDTH} ist.
+      * Dann wurde nichts gezeichnet und Java2D sollte sie zeichnen.
+      */
+    public boolean line(double x0, double y0, double x1, double y1, double w, int argb, boolean aa)
+    {
+	if(w <= 1.5)
+	{
+	    if(!clip(x0, y0, x1, y1))
+		return true;
+	    if(aa)
+	    {
+		wuColor = argb;
+		wu(clipX0, clipY0, clipX1, clipY1);
+	    }
+	    else
+		bresenham((int)Math.round(clipX0), (int)Math.round(clipY0), (int)Math.round(clipX1), (int)Math.round(clipY1), argb);
+	    return true;
+	}
+	if(w > MAX_WIDTH)
+	    return false;
+	capsule(x0, y0, x1, y1, w/2, argb, aa);
+	return true;
+    }
+
+    /** Schneidet die Strecke nach Liang-Barsky auf das Bild zu, mit einem
+      * Pixel Rand, damit die Enden am Bildrand wie ungeschnitten aussehen.
+      * Das Ergebnis wird in clipX0, clipY0, clipX1 und clipY1 abgelegt.
+      * So wird nie weiter als ueber das Bild gelaufen, auch bei riesigen Koordinaten.
+      * @return false, wenn die Strecke das Bild verfehlt oder nicht endlich ist.
+      */
+    private boolean clip(double x0, double y0, double x1, double y1)
+    {
+	if(!Double.isFinite(x0 + y0 + x1 + y1))
+	    return false;
+	double dx = x1 - x0;
+	double dy = y1 - y0;
+	clipT0 = 0;
+	clipT1 = 1;
+	if(!clip(-dx, x0 + 1)  ||  !clip(dx, width - x0)  ||  !clip(-dy, y0 + 1)  ||  !clip(dy, height - y0))
+	    return false;
+	clipX0 = x0 + clipT0*dx;
+	clipY0 = y0 + clipT0*dy;
+	clipX1 = x0 + clipT1*dx;
+	clipY1 = y0 + clipT1*dy;
+	return true;
+    }
+
+    /** Schneidet den Parameterbereich [clipT0, clipT1] mit der Halbebene p*t <= q. */
+    private boolean clip(double p, double q)
+    {
+	if(p == 0)
+	    return q >= 0;
+	double r = q/p;
+	if(p < 0)
+	{
+	    if(r > clipT1)
+		return false;
+	    clipT0 = Math.max(clipT0, r);
+	}
+	else
+	{
+	    if(r < clipT0)
+		return false;
+	    clipT1 = Math.min(clipT1, r);
+	}
+	return true;
+    }
+
+    /** Zeichnet eine 1 Pixel breite Linie ohne Kantenglaettung. */
+    private void bresenham(int x0, int y0, int x1, int y1, int argb)
+    {
+	int dx = Math.abs(x1 - x0);
+	int dy = -Math.abs(y1 - y0);
+	int sx = x0 < x1?  1:  -1;
+	int sy = y0 < y1?  1:  -1;
+	int err = dx + dy;
+	while(true)
+	{
+	    plot(x0, y0, argb, 256);
+	    if(x0 == x1  &&  y0 == y1)
+		break;
+	    int e2 = 2*err;
+	    if(e2 >= dy)
+	    {
+		err += dy;
+		x0 += sx;
+	    }
+	    if(e2 <= dx)
+	    {
+		err += dx;
+		y0 += sy;
+	    }
+	}
+    }
+
+    /** Fuellt eine Kapsel mit Radius r um die Strecke, das ergibt runde Enden.
+      * Pro Zeile werden nur die Pixel am Rand ueber ihren Abstand zur Strecke
+      * gemischt, das Innere wird voll gedeckt.
+      */
+    private void capsule(double x0, double y0, double x1, double y1, double r, int argb, boolean aa)
+    {
+	double dx = x1 - x0;
+	double dy = y1 - y0;
+	double len2 = dx*dx + dy*dy;
+	double inv = len2 > 0?  1/len2:  0;
+	double outer = aa?  r + 0.5:  r;
+	double inner = aa?  r - 0.5:  r;
+	int top = Math.max(0, (int)Math.floor(Math.min(y0, y1) - outer));
+	int bottom = Math.min(height - 1, (int)Math.ceil(Math.max(y0, y1) + outer));
+	for(int y = top; y <= bottom; y++)
+	{
+	    if(!span(x0, y0, x1, y1, y, outer))
+		continue;
+	    int left = Math.max(0, (int)Math.ceil(spanLeft));
+	    int right = Math.min(width - 1, (int)Math.floor(spanRight));
+	    int fullLeft = right + 1;
+	    int fullRight = right;
+	    if(inner > 0  &&  span(x0, y0, x1, y1, y, inner))
+	    {
+		fullLeft = Math.max(left, (int)Math.ceil(spanLeft));
+		fullRight = Math.min(right, (int)Math.floor(spanRight));
+	    }
+	    double py = y - y0;
+	    for(int x = left; x <= right; x++)
+	    {
+		if(x == fullLeft)
+		{
+		    for(; x <= fullRight; x++)
+			plot(x, y, argb, 256);
+		    if(x > right)
+			break;
+		}
+		double px = x - x0;
+		double t = Math.max(0, Math.min(1, (px*dx + py*dy)*inv));
+		double ex = px - t*dx;
+		double ey = py - t*dy;
+		double d = Math.sqrt(ex*ex + ey*ey);
+		double c = aa?  Math.max(0, Math.min(1, r + 0.5 - d)):  (d <= r?  1:  0);
+		plot(x, y, argb, (int)(c*256));
+	    }
+	}
+    }
+
+    /** Schneidet eine Zeile mit der Kapsel vom Radius r um die Strecke.
+      * Die Kapsel ist konvex, der Schnitt also ein Intervall. Er wird in
+      * spanLeft und spanRight abgelegt.
+      * @return false, wenn die Zeile die Kapsel verfehlt.
+      */
+    private boolean span(double x0, double y0, double x1, double y1, int y, double r)
+    {
+	double lo = Double.POSITIVE_INFINITY;
+	double hi = Double.NEGATIVE_INFINITY;
+
+	// Die beiden Kreise an den Enden
+	double e = y - y0;
+	if(Math.abs(e) <= r)
+	{
+	    double h = Math.sqrt(r*r - e*e);
+	    lo = x0 - h;
+	    hi = x0 + h;
+	}
+	e = y - y1;
+	if(Math.abs(e) <= r)
+	{
+	    double h = Math.sqrt(r*r - e*e);
+	    lo = Math.min(lo, x1 - h);
+	    hi = Math.max(hi, x1 + h);
+	}
+
+	// Das Rechteck dazwischen
+	double dx = x1 - x0;
+	double dy = y1 - y0;
+	double len2 = dx*dx + dy*dy;
+	if(len2 > 0)
+	{
+	    double py = y - y0;
+	    double a = Double.NEGATIVE_INFINITY;
+	    double b = Double.POSITIVE_INFINITY;
+	    // Projektion auf die Strecke zwischen 0 und len2
+	    if(dx != 0)
+	    {
+		double u = x0 - py*dy/dx;
+		double v = x0 + (len2 - py*dy)/dx;
+		a = Math.min(u, v);
+		b = Math.max(u, v);
+	    }
+	    else if(py*dy < 0  ||  py*dy > len2)
+		return done(lo, hi);
+	    // Abstand von der Geraden hoechstens r
+	    double rl = r*Math.sqrt(len2);
+	    if(dy != 0)
+	    {
+		double u = x0 + (py*dx - rl)/dy;
+		double v = x0 + (py*dx + rl)/dy;
+		a = Math.max(a, Math.min(u, v));
+		b = Math.min(b, Math.max(u, v));
+	    }
+	    else if(Math.abs(py*dx) > rl)
+		return done(lo, hi);
+	    if(a <= b)
+	    {
+		lo = Math.min(lo, a);
+		hi = Math.max(hi, b);
+	    }
+	}
+	return done(lo, hi);
+    }
+
+    private boolean done(double lo, double hi)
+    {
+	spanLeft = lo;
+	spanRight = hi;
+	return lo <= hi;
+    }
+
+    /** Mischt die Farbe der laufenden Linie nach Xiaolin Wu ueber ein Pixel. */
+    protected void cover(int x, int y, double c)
+    {
+	plot(x, y, wuColor, (int)(c*256));
+    }
+
+    /** Mischt die Farbe mit Deckungsgrad c/256 ueber ein Pixel. */
+    private void plot(int x, int y, int argb, int c)
+    {
+	if(x < 0  ||  x >= width  ||  y < 0  ||  y >= height  ||  c <= 0)
+	    return;
+	int i = y*width + x;
+	int a = ((argb >>> 24)*c) >> 8;
+	if(a >= 255)
+	{
+	    pixels[i] = argb | 0xFF000000;
+	    return;
+	}
+	int d = pixels[i];
+	int rb = ((argb & 0xFF00FF)*a + (d & 0xFF00FF)*(256 - a)) >>> 8;
+	int g = ((argb & 0x00FF00)*a + (d & 0x00FF00)*(256 - a)) >>> 8;
+	int da = d >>> 24;
+	int oa = a + da - a*da/255;
+	pixels[i] = oa << 24 | rb & 0xFF00FF | g & 0x00FF00;
+    }
+
+    /** Breitere Linien bestehen fast nur aus Flaeche, die Java2D genauso
+      * schnell fuellt. Sie werden nicht direkt gezeichnet.
+      */
+    public static final double MAX_WIDTH = 16;
+
+    /** Startpunkt der zuletzt zugeschnittenen Strecke. */
+    private double clipX0;
+
+    private double clipY0;
+
+    /** Zielpunkt der zuletzt zugeschnittenen Strecke. */
+    private double clipX1;
+
+    private double clipY1;
+
+    /** Parameterbereich beim Zuschneiden, 0 = Start, 1 = Ziel. */
+    private double clipT0;
+
+    private double clipT1;
+
+    /** Linker Rand des letzten Zeilenschnitts mit einer Kapsel. */
+    private double spanLeft;
+
+    /** Rechter Rand des letzten Zeilenschnitts mit einer Kapsel. */
+    private double spanRight;
+
+    /** Farbe der Linie, die gerade nach Xiaolin Wu gerastert wird. */
+    private int wuColor;
+
+    /** Die Pixel des Bildes. */
+    private final int[] pixels;
+}
@@ -2,7 +2,6 @@ import java.io.*;
 import java.util.*;
 import java.awt.*;
 import java.awt.image.*;
-import java.awt.event.*;
 import java.awt.font.*;
 import java.awt.geom.*;
 import static java.awt.Font.*;
@@ -10,6 +9,10 @@ import javax.imageio.*;
 
 /** Einfache Zeichenflaeche mit logischen Koordinaten, die in einem Fenster
   * abgebildet wird.
+  * Das Fenster wird nur angelegt, wenn die Flaeche sichtbar sein soll.
+  * Unsichtbare Zeichenflaechen brauchen keinen Bildschirm und koennen auch
+  * in einer JVM mit java.awt.headless=true und in mehreren Threads
+  * nebeneinander angelegt werden.
   *
   * <p>Das folgende Beispielprogramm malt ein Grinsegesicht:
 <pre>class PainterTest
@@ -36,7 +39,7 @@ import javax.imageio.*;
 }</pre>
   * Der Koordinatenursprung liegt in der Mitte der Zeichenfläche.
   */
-public class Painter extends Frame
+public class Painter
 {
     /** Erzeugt eine neue Zeichenflaeche mit 512x512 Pixeln Groesse.
       */
@@ -86,16 +89,32 @@ public class Painter extends Frame
       * Wenn das Fenster unsichtbar bleibt, kann das Bild trotzdem in eine Datei
       * gespeichert werden.
       * Damit sind auch grosse Bildformate moeglich.
+      * Das Pixelbild wird erst angelegt, wenn zum ersten Mal hineingezeichnet wird;
+      * wer gleich nur mit {@link #svg} Vektorgrafik schreibt, braucht keines.
       */
     public Painter(int w, int h, double d, boolean b)
     {
 	width = w;
 	height = h;
 	scale = width/d;
-	bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
     	init(b);
     }
 
+    /** Erzeugt eine unsichtbare Zeichenflaeche, die painter.hidden nicht beachtet.
+      * repaint() sichert sie also nie; geschrieben wird nur mit save().
+      * Fuer Hilfsflaechen, die in mehreren Threads nebeneinander malen.
+      * @param w Pixelbreite.
+      * @param h Pixelhoehe.
+      * @param d Logische Breite.
+      * @return Die Zeichenflaeche.
+      */
+    static Painter offscreen(int w, int h, double d)
+    {
+	Painter p = new Painter(w, h, d, false);
+	p.hidden = null;
+	return p;
+    }
+
     private Painter(BufferedImage bi)
     {
 	bufferedImage = bi;
@@ -109,19 +128,9 @@ public class Painter extends Frame
     {
 	Properties sysprops = System.getProperties();
 	hidden = sysprops.getProperty("painter.hidden");
-	
-	/* Close-Button: Fenster schliessen */
-	addWindowListener(new WindowAdapter()
-			  {
-			      public void windowClosing(WindowEvent e)
-			      {
-				  // System.out.println(e.getX() + " " + e.getY());
-				  System.exit(0);
-			      }
-			  }
-			 );
-
-	gc = bufferedImage.createGraphics();
+
+	// Ohne Pixelbild haelt ein Bild aus einem Pixel Farbe, Linienbreite und Font
+	gc = (bufferedImage != null?  bufferedImage:  new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB)).createGraphics();
 	gc.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
 	gc.setStroke(new BasicStroke(1f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
@@ -133,26 +142,23 @@ public class Painter extends Frame
 	textposX = width/scale/2;
 	textposY = height/scale/2;
 	
+	// Kein repaint() hier: im Modus painter.hidden wuerde jede neue Flaeche
+	// ein leeres Bild speichern, und render() und flush() der Unterklassen
+	// liefen, bevor deren Felder angelegt sind.
 	if(v  &&  hidden == null)
 	    setVisible(true);
-
-	/* Dekoration ausmessen */
-    	insets = getInsets();
-	
-    	/* Groesse entsprechend Dekoration einstellen */
-    	setSize(width + insets.left + insets.right, height + insets.bottom + insets.top);
-
-	/* neu zeichnen */
-	repaint();
     }
 
-    /** Sollte eigentlich nicht redefiniert werden.
-      * Der Aufruf muss aber abgefangen werden, um das Bild zu sichern,
-      * falls das Programm auf einem Server laeuft.
+    /** Zeigt das Bild im Fenster an und sichert es, falls das Programm
+      * mit painter.hidden auf einem Server laeuft.
+      * Im Fenster wird nur der Bereich neu gezeichnet, der sich seit dem
+      * letzten Aufruf geaendert hat.
       */
     public void repaint()
     {
-	super.repaint();
+	render();
+	flatten();
+	repaintDirty(0);
     	try
 	{
 	    if(hidden != null)
@@ -162,22 +168,165 @@ public class Painter extends Frame
 	{}
     }
     
-    /** Callbackmethode zum Neuzeichnen des Fensters.
-      * @param g Graphics context.
+    /** Zeigt die Zeichenflaeche in einem Fenster an oder verbirgt sie.
+      * Das Fenster wird beim ersten Anzeigen angelegt.
+      * Ohne Bildschirm bleibt die Flaeche unsichtbar, es wird trotzdem gezeichnet.
+      * @param b true = anzeigen, false = verbergen.
+      */
+    public void setVisible(boolean b)
+    {
+	if(viewer == null)
+	{
+	    if(!b  ||  GraphicsEnvironment.isHeadless())
+		return;
+	    viewer = new PainterWindow(image());
+	}
+	else
+	    viewer.setVisible(b);
+    }
+
+    /** Schliesst das Fenster und beendet die laufende Anzeige.
+      * Die Zeichenflaeche selbst bleibt benutzbar.
+      */
+    public void dispose()
+    {
+	live(false);
+	PainterWindow v = viewer;
+	viewer = null;
+	if(v != null)
+	    v.dispose();
+    }
+
+    /** Zeigt das Bild schon waehrend des Zeichnens an.
+      * Die geaenderten Bereiche werden hoechstens so oft neu gezeichnet,
+      * wie der Bildschirm es darstellen kann.
+      * So kann man grossen Figuren beim Entstehen zusehen.
+      * Ebenen setzt der zeichnende Thread selbst zusammen, ebenso oft,
+      * vor dem naechsten Strich; der Zeitgeber zeigt nur an.
+      * @param on true = laufend anzeigen, false = erst bei repaint() anzeigen.
       */
-    public void paint(Graphics g)
+    public void live(boolean on)
     {
-	bufferedImage.flush();
-	g.drawImage(bufferedImage, insets.left, insets.top, this);
+	if(liveTimer != null)
+	    liveTimer.cancel();
+	liveTimer = null;
+	livePeriod = 0;
+	if(on)
+	{
+	    long period = 1000/refreshRate();
+	    livePeriod = period*1000000;
+	    liveTimer = new java.util.Timer("Painter.live", true);
+	    liveTimer.scheduleAtFixedRate(new TimerTask()
+					  {
+					      public void run()
+					      {
+						  repaintDirty(period);
+					      }
+					  },
+					  period, period);
+	}
+    }
+
+    /** Liefert die Bildwiederholrate des Bildschirms.
+      * @return Bilder pro Sekunde, 60 wenn sie nicht bekannt ist.
+      */
+    private static int refreshRate()
+    {
+	try
+	{
+	    int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+	    if(rate != DisplayMode.REFRESH_RATE_UNKNOWN)
+		return rate;
+	}
+	catch(HeadlessException ex)
+	{}
+	return 60;
     }
 
-    /** Callbackmethode zum Neuzeichnen des Fensters.
-      * @param g Graphics context.
+    /** Laesst den geaenderten Bereich im Fenster neu zeichnen.
+      * @param tm Hoechstens so viele Millisekunden bis zum Neuzeichnen.
       */
-    public void update(Graphics g)
+    private void repaintDirty(long tm)
     {
-	bufferedImage.flush();
-	g.drawImage(bufferedImage, insets.left, insets.top, this);
+	int x;
+	int y;
+	int w;
+	int h;
+	synchronized(dirtyLock)
+	{
+	    if(dirtyRight < dirtyLeft)
+		return;
+	    x = dirtyLeft;
+	    y = dirtyTop;
+	    w = dirtyRight - dirtyLeft + 1;
+	    h = dirtyBottom - dirtyTop + 1;
+	    dirtyLeft = Integer.MAX_VALUE;
+	    dirtyTop = Integer.MAX_VALUE;
+	    dirtyRight = Integer.MIN_VALUE;
+	    dirtyBottom = Integer.MIN_VALUE;
+	}
+	PainterWindow v = viewer;
+	if(v != null)
+	    v.repaintImage(tm, x, y, w, h);
+    }
+
+    /** Merkt sich ein Rechteck als geaendert.
+      * Die Ecken duerfen in beliebiger Reihenfolge kommen,
+      * die halbe Linienbreite wird zugeschlagen.
+      * @param x0 Horizontale Pixelkoordinate einer Ecke.
+      * @param y0 Vertikale Pixelkoordinate einer Ecke.
+      * @param x1 Horizontale Pixelkoordinate der gegenueberliegenden Ecke.
+      * @param y1 Vertikale Pixelkoordinate der gegenueberliegenden Ecke.
+      */
+    private void touch(int x0, int y0, int x1, int y1)
+    {
+	blank = null;
+	int m = (int)strokeWidth/2 + 2;
+	int left = Math.max(0, Math.min(x0, x1) - m);
+	int top = Math.max(0, Math.min(y0, y1) - m);
+	int right = Math.min(width - 1, Math.max(x0, x1) + m);
+	int bottom = Math.min(height - 1, Math.max(y0, y1) + m);
+	if(right < left  ||  bottom < top)
+	    return;
+	if(animation != null)
+	    animation.touch(left, top, right, bottom);
+	if(layer != null)
+	{
+	    // erst die frueheren Striche zusammensetzen, dann die Zeilen dieses Strichs vormerken
+	    if(livePeriod > 0)
+		liveFlatten();
+	    layer.touch(top, bottom);
+	}
+	synchronized(dirtyLock)
+	{
+	    dirtyLeft = Math.min(dirtyLeft, left);
+	    dirtyTop = Math.min(dirtyTop, top);
+	    dirtyRight = Math.max(dirtyRight, right);
+	    dirtyBottom = Math.max(dirtyBottom, bottom);
+	}
+    }
+
+    /** Merkt sich das umschliessende Rechteck eines Polygons als geaendert.
+      * @param xs Horizontale Pixelkoordinaten.
+      * @param ys Vertikale Pixelkoordinaten.
+      * @param n Anzahl Punkte.
+      */
+    private void touch(int[] xs, int[] ys, int n)
+    {
+	if(n == 0)
+	    return;
+	int left = xs[0];
+	int right = xs[0];
+	int top = ys[0];
+	int bottom = ys[0];
+	for(int i = 1; i < n; i++)
+	{
+	    left = Math.min(left, xs[i]);
+	    right = Math.max(right, xs[i]);
+	    top = Math.min(top, ys[i]);
+	    bottom = Math.max(bottom, ys[i]);
+	}
+	touch(left, top, right, bottom);
     }
 
     /** Legt die Zeichenfarbe neu fest.
@@ -189,6 +338,7 @@ public class Painter extends Frame
     {
 	color = c;
 	gc.setColor(c);
+	metrics.colorChange();
     }
 
     /** Legt die Zeichenfarbe neu fest.
@@ -204,6 +354,7 @@ public class Painter extends Frame
     {
 	color = new Color(clamp(r), clamp(g), clamp(b));
 	gc.setColor(color);
+	metrics.colorChange();
     }
     
     private static int clamp(int n)
@@ -212,11 +363,16 @@ public class Painter extends Frame
     }
     
     /** Legt die Anzahl Farben aus dem Regenbogen fest.
+      * Die Palette wird nur neu berechnet, wenn sich die Anzahl aendert.
       * @param n Anzahl Regenbogenfarben.
       */
     public void colors(int n)
     {
-    	shades = new Shades(n);
+    	if(shades == null  ||  shades.size() != n)
+	{
+	    shades = new Shades(n);
+	    shadeColors = new Color[n];
+	}
     }
     
     /** Waehlt eine Regenbogenfarbe aus.
@@ -225,8 +381,20 @@ public class Painter extends Frame
       */
     public void color(int n)
     {
-    	int[] rgb = shades.shade(n);
-    	gc.setColor(new Color(rgb[0], rgb[1], rgb[2]));
+    	int i = Math.floorMod(n, shades.size());
+	Color c = shadeColors[i];
+	if(c == null)
+	    c = shadeColors[i] = new Color(shades.shadeRgb(i));
+	gc.setColor(c);
+	metrics.colorChange();
+    }
+
+    /** Liefert die eingestellte Zeichenfarbe.
+      * @return Farbe 0xAARRGGBB.
+      */
+    protected int colorRgb()
+    {
+	return gc.getColor().getRGB();
     }
 
     /** Uebermalt die ganze Flaeche mit der Farbe c.
@@ -234,16 +402,14 @@ public class Painter extends Frame
       */
     public void clear(Color c)
     {
-	gc.setBackground(c);
-	gc.clearRect(0, 0, width, height);
+	fill(c);
     }
 
     /** Uebermalt die ganze Flaeche mit der voreingestellten Farbe.
       */
     public void clear()
     {
-	gc.setBackground(color);
-	gc.clearRect(0, 0, width, height);
+	fill(color);
     }
 
     /** Zeichnet eine Linie in der aktuellen Zeichenfarbe vom ersten zum
@@ -255,7 +421,7 @@ public class Painter extends Frame
       */
     public void line(double fromx, double fromy, double tox, double toy)
     {
-	gc.drawLine(scalex(fromx), scaley(fromy), scalex(tox), scaley(toy));
+	strokeLine(gc.getColor(), fromx, fromy, tox, toy);
     }
 
     /** Zeichnet eine Linie in der Farbe c vom ersten zum
@@ -269,10 +435,327 @@ public class Painter extends Frame
     public void line(Color c, double fromx, double fromy, double tox, double toy)
     {
 	gc.setColor(c);
-	gc.drawLine(scalex(fromx), scaley(fromy), scalex(tox), scaley(toy));
+	strokeLine(c, fromx, fromy, tox, toy);
 	gc.setColor(color);
     }
 
+    /** Zeichnet alle Striche eines Puffers in ihrer Reihenfolge.
+      * Farbe und Linienbreite werden nur umgestellt, wenn sie sich von Strich
+      * zu Strich aendern, und danach wiederhergestellt.
+      * Der Puffer wird nur gelesen.
+      * @param b Striche, zum Beispiel von einer {@link Turtle}.
+      */
+    public void segments(SegmentBuffer b)
+    {
+	Color savedColor = gc.getColor();
+	Stroke savedStroke = gc.getStroke();
+	double savedWidth = strokeWidth;
+	double[] xy = b.coords();
+	int[] colors = b.colors();
+	double[] widths = b.widths();
+	int argb = savedColor.getRGB();
+	double w = 0;
+	for(int i = 0; i < b.size(); i++)
+	{
+	    if(colors[i] != argb)
+	    {
+		argb = colors[i];
+		gc.setColor(new Color(argb, true));
+		metrics.colorChange();
+	    }
+	    if(widths[i] != w)
+	    {
+		w = widths[i];
+		if(w > 0)
+		    lineWidth(w);
+		else
+		{
+		    strokeWidth = savedWidth;
+		    gc.setStroke(savedStroke);
+		    metrics.strokeChange();
+		}
+	    }
+	    segment(xy[4*i], xy[4*i + 1], xy[4*i + 2], xy[4*i + 3]);
+	}
+	gc.setColor(savedColor);
+	gc.setStroke(savedStroke);
+	strokeWidth = savedWidth;
+    }
+
+    /** Zeichnet eine Linie in der gegebenen Farbe und Linienbreite.
+      * Die eingestellte Farbe und Linienbreite bleiben danach erhalten.
+      * @param argb Farbe 0xAARRGGBB.
+      * @param w Linienbreite in logischen Koordinaten.
+      * @param fromx Horizontale Koordinate des ersten Punktes.
+      * @param fromy Vertikale Koordinate des ersten Punktes.
+      * @param tox Horizontale Koordinate des zweiten Punktes.
+      * @param toy Vertikale Koordinate des zweiten Punktes.
+      */
+    protected void styledLine(int argb, double w, double fromx, double fromy, double tox, double toy)
+    {
+	Color savedColor = gc.getColor();
+	if(savedColor.getRGB() == argb  &&  w == lineWidth())
+	{
+	    strokeLine(savedColor, fromx, fromy, tox, toy);
+	    return;
+	}
+	Stroke savedStroke = gc.getStroke();
+	double savedWidth = strokeWidth;
+	Color c = new Color(argb, true);
+	gc.setColor(c);
+	lineWidth(w);
+	strokeLine(c, fromx, fromy, tox, toy);
+	gc.setColor(savedColor);
+	gc.setStroke(savedStroke);
+	strokeWidth = savedWidth;
+    }
+
+    /** Zeichnet einen Strich aus {@link #segments} in der eingestellten Farbe.
+      * Unterklassen koennen die Striche anders verarbeiten.
+      * @param x0 Horizontale Koordinate des Startpunktes.
+      * @param y0 Vertikale Koordinate des Startpunktes.
+      * @param x1 Horizontale Koordinate des Zielpunktes.
+      * @param y1 Vertikale Koordinate des Zielpunktes.
+      */
+    protected void segment(double x0, double y0, double x1, double y1)
+    {
+	line(x0, y0, x1, y1);
+    }
+
+    /** Uebermalt die ganze Flaeche.
+      * @param c Farbe.
+      */
+    private void fill(Color c)
+    {
+	flush();
+	touch(0, 0, width, height);
+	metrics.clear(width, height);
+	if(svg != null)
+	    svg.clear(c.getRGB());
+	if(layers == null)
+	    blank = c;
+	if(raster  &&  bufferedImage == null)
+	    unpainted = c;
+	else if(raster)
+	{
+	    gc.setBackground(c);
+	    gc.clearRect(0, 0, width, height);
+	}
+    }
+
+    /** Prueft, ob ins Pixelbild gezeichnet wird, und legt es dann beim ersten Mal an.
+      * @return true = ins Pixelbild zeichnen.
+      */
+    private boolean raster()
+    {
+	if(raster  &&  bufferedImage == null)
+	    image();
+	return raster;
+    }
+
+    /** Liefert das Pixelbild und legt es beim ersten Gebrauch an.
+      * Ein bis dahin nur vorgemerktes clear() wird nachgeholt.
+      * @return Pixelbild.
+      */
+    private BufferedImage image()
+    {
+	if(bufferedImage == null)
+	{
+	    BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+	    Graphics2D g = bi.createGraphics();
+	    if(unpainted != null)
+	    {
+		g.setBackground(unpainted);
+		g.clearRect(0, 0, width, height);
+		unpainted = null;
+	    }
+	    bufferedImage = bi;
+	    adopt(g);
+	}
+	return bufferedImage;
+    }
+
+    /** Zeichnet ab jetzt mit g weiter.
+      * Farbe, Hintergrund, Linienbreite, Font und Kantenglaettung gehen auf g ueber.
+      */
+    private void adopt(Graphics2D g)
+    {
+	g.setRenderingHints(gc.getRenderingHints());
+	g.setColor(gc.getColor());
+	g.setBackground(gc.getBackground());
+	g.setStroke(gc.getStroke());
+	g.setFont(gc.getFont());
+	gc = g;
+    }
+
+    /** Zeichnet eine Linie in der Farbe c, die schon eingestellt ist.
+      */
+    private void strokeLine(Color c, double fromx, double fromy, double tox, double toy)
+    {
+	flush();
+	if(outside(pixelx(fromx), pixely(fromy), pixelx(tox), pixely(toy)))
+	{
+	    metrics.culled();
+	    return;
+	}
+	touch(scalex(fromx), scaley(fromy), scalex(tox), scaley(toy));
+	if(metrics.enabled())
+	{
+	    double dx = tox - fromx;
+	    double dy = toy - fromy;
+	    metrics.line(scale*Math.sqrt(dx*dx + dy*dy), strokeWidth);
+	}
+	if(svg != null)
+	    svg.line(pixelx(fromx), pixely(fromy), pixelx(tox), pixely(toy), c.getRGB(), strokeWidth);
+	if(raster()  &&  !rasterLine(c, fromx, fromy, tox, toy))
+	    gc.drawLine(scalex(fromx), scaley(fromy), scalex(tox), scaley(toy));
+    }
+
+    /** Prueft, ob eine Strecke ganz ausserhalb der Zeichenflaeche liegt,
+      * weil beide Endpunkte jenseits derselben Kante liegen.
+      * Solche Strecken werden gar nicht erst gezeichnet.
+      */
+    private boolean outside(double x0, double y0, double x1, double y1)
+    {
+	double m = strokeWidth;
+	return x0 < -m  &&  x1 < -m  ||  x0 > width + m  &&  x1 > width + m
+	    ||  y0 < -m  &&  y1 < -m  ||  y0 > height + m  &&  y1 > height + m;
+    }
+
+    /** Zeichnet einen Bogen in der eingestellten Farbe.
+      * Die Parameter sind Pixelkoordinaten wie bei Graphics.drawArc.
+      * @param fill true = als Tortenstueck fuellen.
+      */
+    private void shapeArc(int x, int y, int w, int h, int start, int arc, boolean fill)
+    {
+	flush();
+	touch(x, y, x + w, y + h);
+	metrics.arc(w, h, arc, strokeWidth, fill);
+	if(svg != null)
+	    svg.arc(x, y, w, h, start, arc, gc.getColor().getRGB(), strokeWidth, fill);
+	if(raster()  &&  !stamp(x, y, w, h, start, arc, fill))
+	{
+	    if(fill)
+		gc.fillArc(x, y, w, h, start, arc);
+	    else
+		gc.drawArc(x, y, w, h, start, arc);
+	}
+    }
+
+    /** Zeichnet eine Ellipse in der eingestellten Farbe.
+      * Die Parameter sind Pixelkoordinaten wie bei Graphics.drawOval.
+      * @param fill true = fuellen.
+      */
+    private void shapeOval(int x, int y, int w, int h, boolean fill)
+    {
+	flush();
+	touch(x, y, x + w, y + h);
+	metrics.oval(w, h, strokeWidth, fill);
+	if(svg != null)
+	    svg.oval(x, y, w, h, gc.getColor().getRGB(), strokeWidth, fill);
+	if(raster()  &&  !stamp(x, y, w, h, 0, 360, fill))
+	{
+	    if(fill)
+		gc.fillOval(x, y, w, h);
+	    else
+		gc.drawOval(x, y, w, h);
+	}
+    }
+
+    /** Stempelt eine Ellipse oder einen Bogen aus dem Zwischenspeicher auf,
+      * falls der eingeschaltet ist.
+      * @return true, wenn gestempelt wurde; false, wenn Java2D zeichnen muss.
+      * @see #stamps
+      */
+    private boolean stamp(int x, int y, int w, int h, int start, int arc, boolean fill)
+    {
+	if(stamps == null  ||  !(gc.getStroke() instanceof BasicStroke))
+	    return false;
+	StampCache.Stamp s = stamps.get(w, h, start, arc, fill, (BasicStroke)gc.getStroke(), gc.getColor().getRGB(), antialias);
+	if(s == null)
+	    return false;
+	gc.drawImage(s.image, x - s.margin, y - s.margin, null);
+	return true;
+    }
+
+    /** Zeichnet ein Rechteck in der eingestellten Farbe.
+      * Die Parameter sind Pixelkoordinaten wie bei Graphics.drawRect.
+      * @param fill true = fuellen.
+      */
+    private void shapeRect(int x, int y, int w, int h, boolean fill)
+    {
+	flush();
+	touch(x, y, x + w, y + h);
+	metrics.rect(w, h, strokeWidth, fill);
+	if(svg != null)
+	    svg.rect(x, y, w, h, gc.getColor().getRGB(), strokeWidth, fill);
+	if(raster())
+	{
+	    if(fill)
+		gc.fillRect(x, y, w, h);
+	    else
+		gc.drawRect(x, y, w, h);
+	}
+    }
+
+    /** Zeichnet einen Polygonzug in der eingestellten Farbe.
+      * @param xs Horizontale Pixelkoordinaten.
+      * @param ys Vertikale Pixelkoordinaten.
+      * @param n Anzahl Punkte.
+      * @param fill true = als geschlossenes Polygon fuellen.
+      */
+    private void shapePoly(int[] xs, int[] ys, int n, boolean fill)
+    {
+	flush();
+	touch(xs, ys, n);
+	metrics.poly();
+	if(svg != null)
+	    svg.poly(xs, ys, n, gc.getColor().getRGB(), strokeWidth, fill);
+	if(raster())
+	{
+	    if(fill)
+		gc.fillPolygon(xs, ys, n);
+	    else
+		gc.drawPolyline(xs, ys, n);
+	}
+    }
+
+    /** Zeichnet eine Linie direkt in die Pixel, falls das eingeschaltet ist.
+      * @return true, wenn die Linie gezeichnet wurde; false, wenn Java2D sie zeichnen muss.
+      * @see #rasterLines
+      */
+    private boolean rasterLine(Color c, double fromx, double fromy, double tox, double toy)
+    {
+	return rasterizer != null
+	    &&  rasterizer.line(pixelx(fromx) - .5, pixely(fromy) - .5, pixelx(tox) - .5, pixely(toy) - .5,
+				strokeWidth, c.getRGB(), antialias);
+    }
+
+    /** Schaltet das direkte Zeichnen von Linien ein oder aus.
+      * Linien werden dann ohne Java2D direkt in die Pixel geschrieben,
+      * was bei vielen kurzen Linien ein Vielfaches schneller ist.
+      * Breite, lange Linien zeichnet weiterhin Java2D.
+      * Das Bild kann danach von der Grafikkarte nicht mehr beschleunigt
+      * dargestellt werden.
+      * @param on true = direkt zeichnen, false = immer mit Java2D zeichnen.
+      */
+    public void rasterLines(boolean on)
+    {
+	if(on)
+	    rasterizer = new LineRasterizer(pixels(), width, height);
+	else
+	    rasterizer = null;
+    }
+
+    /** Schaltet die Kantenglaettung ein oder aus.
+      * @param on true = Kanten glaetten (Voreinstellung), false = harte Kanten.
+      */
+    public void antialias(boolean on)
+    {
+	antialias = on;
+	gc.setRenderingHint(RenderingHints.KEY_ANTIALIASING, on?  RenderingHints.VALUE_ANTIALIAS_ON:  RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+
     /** Zeichnet einen Bogen in der aktuellen Zeichenfarbe auf dem Umfang des
       * gegebenen Kreises.
       * @param x Horizontale Koordinate des Kreismittelpunktes.
@@ -334,7 +817,7 @@ public class Painter extends Frame
 	h *= 2;
 	x -= w/2;
 	y += h/2;
-	gc.drawArc(scalex(x), scaley(y), tox(w), toy(h), start, arc);
+	shapeArc(scalex(x), scaley(y), tox(w), toy(h), start, arc, false);
     }
 
     /** Zeichnet einen gefuellten Bogen in der aktuellen Zeichenfarbe auf dem Umfang der
@@ -353,7 +836,7 @@ public class Painter extends Frame
 	h *= 2;
 	x -= w/2;
 	y += h/2;
-	gc.fillArc(scalex(x), scaley(y), tox(w), toy(h), start, arc);
+	shapeArc(scalex(x), scaley(y), tox(w), toy(h), start, arc, true);
     }
 
     /** Zeichnet eine Bogen in der Farbe c auf dem Umfang der
@@ -374,7 +857,7 @@ public class Painter extends Frame
 	x -= w/2;
 	y += h/2;
 	gc.setColor(c);
-	gc.drawArc(scalex(x), scaley(y), tox(w), toy(h), start, arc);
+	shapeArc(scalex(x), scaley(y), tox(w), toy(h), start, arc, false);
 	gc.setColor(color);
     }
 
@@ -386,7 +869,7 @@ public class Painter extends Frame
       */
     public void box(double x, double y, double w, double h)
     {
-	gc.drawRect(scalex(x), scaley(y) - toy(h), tox(w), toy(h));
+	shapeRect(scalex(x), scaley(y) - toy(h), tox(w), toy(h), false);
     }
 
     /** Zeichnet ein ausgefuelltes Rechteck in der aktuellen Zeichenfarbe.
@@ -397,7 +880,7 @@ public class Painter extends Frame
       */
     public void filledBox(double x, double y, double w, double h)
     {
-	gc.fillRect(scalex(x), scaley(y) - toy(h), tox(w), toy(h));
+	shapeRect(scalex(x), scaley(y) - toy(h), tox(w), toy(h), true);
     }
 
     /** Zeichnet ein Rechteck in der Farbe c.
@@ -410,7 +893,7 @@ public class Painter extends Frame
     public void box(Color c, double x, double y, double w, double h)
     {
 	gc.setColor(c);
-	gc.drawRect(scalex(x), scaley(y) - toy(h), tox(w), toy(h));
+	shapeRect(scalex(x), scaley(y) - toy(h), tox(w), toy(h), false);
 	gc.setColor(color);
     }
 
@@ -424,7 +907,7 @@ public class Painter extends Frame
     public void filledBox(Color c, double x, double y, double w, double h)
     {
 	gc.setColor(c);
-	gc.fillRect(scalex(x), scaley(y) - toy(h), tox(w), toy(h));
+	shapeRect(scalex(x), scaley(y) - toy(h), tox(w), toy(h), true);
 	gc.setColor(color);
     }
 
@@ -441,7 +924,7 @@ public class Painter extends Frame
 	    xpoints[i] = scalex(p[2*i]);
 	    ypoints[i] = scaley(p[2*i + 1]);
 	}
-	gc.drawPolyline(xpoints, ypoints, npoints);
+	shapePoly(xpoints, ypoints, npoints, false);
     }
 
     /** Zeichnet ein gefuelltes Polygon in der aktuellen Zeichenfarbe.
@@ -457,7 +940,7 @@ public class Painter extends Frame
 	    xpoints[i] = scalex(p[2*i]);
 	    ypoints[i] = scaley(p[2*i + 1]);
 	}
-	gc.fillPolygon(xpoints, ypoints, npoints);
+	shapePoly(xpoints, ypoints, npoints, true);
     }
 
     /** Zeichnet einen Polygonzug in der Farbe c.
@@ -475,7 +958,7 @@ public class Painter extends Frame
 	    ypoints[i] = scaley(p[2*i + 1]);
 	}
 	gc.setColor(c);
-	gc.drawPolyline(xpoints, ypoints, npoints);
+	shapePoly(xpoints, ypoints, npoints, false);
 	gc.setColor(color);
     }
 
@@ -494,7 +977,7 @@ public class Painter extends Frame
 	    ypoints[i] = scaley(p[2*i + 1]);
 	}
 	gc.setColor(c);
-	gc.fillPolygon(xpoints, ypoints, npoints);
+	shapePoly(xpoints, ypoints, npoints, true);
 	gc.setColor(color);
     }
 
@@ -530,7 +1013,7 @@ public class Painter extends Frame
 	h *= 2;
 	x -= w/2;
 	y += h/2;
-	gc.drawOval(scalex(x), scaley(y), tox(w), toy(h));
+	shapeOval(scalex(x), scaley(y), tox(w), toy(h), false);
     }
 
     /** Zeichnet eine gefuellte Ellipse in der aktuellen Zeichenfarbe.
@@ -545,7 +1028,7 @@ public class Painter extends Frame
 	h *= 2;
 	x -= w/2;
 	y += h/2;
-	gc.fillOval(scalex(x), scaley(y), tox(w), toy(h));
+	shapeOval(scalex(x), scaley(y), tox(w), toy(h), true);
     }
 
     /** Zeichnet einen Kreis in der Farbe c.
@@ -588,7 +1071,7 @@ public class Painter extends Frame
 	x -= w/2;
 	y += h/2;
 	gc.setColor(c);
-	gc.drawOval(scalex(x), scaley(y), tox(w), toy(h));
+	shapeOval(scalex(x), scaley(y), tox(w), toy(h), false);
 	gc.setColor(color);
     }
 
@@ -606,7 +1089,7 @@ public class Painter extends Frame
 	x -= w/2;
 	y += h/2;
 	gc.setColor(c);
-	gc.fillOval(scalex(x), scaley(y), tox(w), toy(h));
+	shapeOval(scalex(x), scaley(y), tox(w), toy(h), true);
 	gc.setColor(color);
     }
 
@@ -618,22 +1101,200 @@ public class Painter extends Frame
 	scale = width/d;
     }
 
+    /** Waehlt Massstab und Mittelpunkt so, dass das gegebene Rechteck die
+      * Zeichenflaeche gerade ausfuellt.
+      * Das Seitenverhaeltnis bleibt erhalten.
+      * Die Linienbreite muss danach neu eingestellt werden.
+      * @param minx Linke Kante in logischen Koordinaten.
+      * @param miny Untere Kante in logischen Koordinaten.
+      * @param maxx Rechte Kante in logischen Koordinaten.
+      * @param maxy Obere Kante in logischen Koordinaten.
+      * @param margin Freier Rand als Anteil der Kantenlaenge, zum Beispiel 0.05.
+      */
+    public void fit(double minx, double miny, double maxx, double maxy, double margin)
+    {
+	double w = Math.max(maxx - minx, 1e-9);
+	double h = Math.max(maxy - miny, 1e-9);
+	scale = Math.min(width/w, height/h)*(1 - 2*margin);
+	centerX = (minx + maxx)/2;
+	centerY = (miny + maxy)/2;
+    }
+
     /** Aendert die Breite von Linien.
       * @param d Neue Linienbreite.
       */
     public void lineWidth(double d)
     {
-	gc.setStroke(new BasicStroke((float)(scale*d), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+	metrics.strokeChange();
+	strokeWidth = scale*d;
+	gc.setStroke(new BasicStroke((float)strokeWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+    }
+
+    /** Liefert die eingestellte Linienbreite.
+      * @return Linienbreite in logischen Koordinaten.
+      */
+    protected double lineWidth()
+    {
+	return strokeWidth/scale;
     }
 
     private final int scalex(double x)
     {
-	return tox(x) + width/2;
+	return tox(x - centerX) + width/2;
     }
 
     private final int scaley(double y)
     {
-	return height/2 - toy(y);
+	return height/2 - toy(y - centerY);
+    }
+
+    /** Rechnet eine horizontale Koordinate ohne Runden in Pixel um.
+      * @param x Horizontale logische Koordinate.
+      * @return Horizontale Pixelkoordinate.
+      */
+    protected final double pixelx(double x)
+    {
+	return scale*(x - centerX) + width/2;
+    }
+
+    /** Rechnet eine vertikale Koordinate ohne Runden in Pixel um.
+      * @param y Vertikale logische Koordinate.
+      * @return Vertikale Pixelkoordinate.
+      */
+    protected final double pixely(double y)
+    {
+	return height/2 - scale*(y - centerY);
+    }
+
+    /** Liefert die Breite des Pixelbildes.
+      * @return Breite in Pixel.
+      */
+    protected final int pixelWidth()
+    {
+	return width;
+    }
+
+    /** Liefert die Hoehe des Pixelbildes.
+      * @return Hoehe in Pixel.
+      */
+    protected final int pixelHeight()
+    {
+	return height;
+    }
+
+    /** Ueberschreibt das ganze Pixelbild.
+      * @param argb Pixel zeilenweise von links oben in der Darstellung 0xAARRGGBB.
+      */
+    protected void blit(int[] argb)
+    {
+	flush();
+	if(layer != null)
+	    System.arraycopy(argb, 0, layer.pixels, 0, width*height);
+	else
+	    image().setRGB(0, 0, width, height, argb, 0, width);
+	touch(0, 0, width, height);
+    }
+
+    /** Liefert die Pixel, in die gerade gezeichnet wird.
+      * @return Pixel der aktuellen Ebene oder des Bildes, zeilenweise 0xAARRGGBB.
+      */
+    private int[] pixels()
+    {
+	if(layer != null)
+	    return layer.pixels;
+	return ((DataBufferInt)image().getRaster().getDataBuffer()).getData();
+    }
+
+    /** Zeichnet alle folgenden Operationen in eine eigene, benannte Ebene.
+      * Gibt es die Ebene noch nicht, wird sie durchsichtig ueber allen anderen angelegt.
+      * Beim ersten Aufruf wird alles bisher Gezeichnete zur untersten Ebene
+      * mit dem Namen "".
+      * Farbe, Linienbreite und Font gelten in der neuen Ebene weiter.
+      * Eine Ebene wird mit clear(new Color(0, 0, 0, 0)) wieder durchsichtig.
+      *
+      * <p>Beim Anzeigen und Speichern werden nur die Zeilen neu zusammengesetzt,
+      * in denen seitdem gemalt wurde. Eine Beschriftung zu aendern kostet
+      * also nichts fuer die Ebenen darunter.
+      * @param name Name der Ebene.
+      * @see Layers
+      */
+    public void layer(String name)
+    {
+	flush();
+	if(layers == null)
+	{
+	    layers = new Layers(width, height);
+	    Layers.Layer base = layers.layer("");
+	    image().getRGB(0, 0, width, height, base.pixels, 0, width);
+	    base.touch(0, height - 1);
+	}
+	Layers.Layer l = layers.layer(name);
+	adopt(l.graphics);
+	layer = l;
+	if(rasterizer != null)
+	    rasterizer = new LineRasterizer(layer.pixels, width, height);
+    }
+
+    /** Blendet eine Ebene ein oder aus.
+      * @param name Name der Ebene.
+      * @param on true = einblenden, false = ausblenden.
+      * @see #layer
+      */
+    public void layerVisible(String name, boolean on)
+    {
+	if(layers == null)
+	    return;
+	layers.visible(name, on);
+	touch(0, 0, width, height);
+    }
+
+    /** Setzt die Ebenen bei laufender Anzeige hoechstens einmal pro
+      * Bildschirmbild neu zusammen. Laeuft immer im zeichnenden Thread,
+      * nie gleichzeitig mit einem Strich in eine Ebene.
+      */
+    private void liveFlatten()
+    {
+	long now = System.nanoTime();
+	if(now - flattened < livePeriod)
+	    return;
+	flattened = now;
+	flatten();
+    }
+
+    /** Setzt die Ebenen im Pixelbild neu zusammen, wo sich etwas geaendert hat.
+      */
+    private void flatten()
+    {
+	if(layers == null)
+	    return;
+	if(bufferedImage.getType() == BufferedImage.TYPE_INT_ARGB)
+	    layers.flatten(((DataBufferInt)bufferedImage.getRaster().getDataBuffer()).getData());
+	else
+	{
+	    // eingelesene Bilder haben oft ein anderes Format, der Umweg wird wiederverwendet
+	    if(flatPixels == null)
+		flatPixels = new int[width*height];
+	    int[] argb = flatPixels;
+	    int[] rows = layers.flatten(argb);
+	    if(rows != null)
+		bufferedImage.setRGB(0, rows[0], width, rows[1] - rows[0] + 1, argb, rows[0]*width, width);
+	}
+    }
+
+    /** Wird vor jedem Anzeigen und Speichern aufgerufen.
+      * Unterklassen, die nicht direkt in das Pixelbild zeichnen,
+      * koennen hier ihren Stand uebertragen.
+      */
+    protected void render()
+    {
+    }
+
+    /** Wird vor jeder Zeichenoperation und vor jedem Wechsel der Ebene
+      * aufgerufen. Unterklassen, die Striche zurueckhalten, muessen sie hier
+      * malen, damit die Reihenfolge im Bild erhalten bleibt.
+      */
+    protected void flush()
+    {
     }
 
     private final int tox(double x)
@@ -718,31 +1379,38 @@ public class Painter extends Frame
       * Im letzten Fall wird /usr/share/fonts/{fn}.ttf versucht.
       * @param st Schriftattribute (Font.PLAIN, Font.ITALIC, Font.BOLD oder eine Summe daraus).
       * @param pt Neue Fontgroesse in logischen Koordinaten.
+      * Einmal geladene Fonts werden wiederverwendet.
       */
     public void font(String fn, int st, double pt)
     {
     	fontname = fn;
 	fontstyle = st;
 	fontsize = pt;
-	try
+	String key = fontname + '\0' + fontstyle + '\0' + tox(pt);
+	font = fonts.get(key);
+	if(font == null)
 	{
-	    InputStream fontstream;
 	    try
 	    {
-	        fontstream = new FileInputStream(fontname);
+		InputStream fontstream;
+		try
+		{
+		    fontstream = new FileInputStream(fontname);
+		}
+		catch(FileNotFoundException ex)
+		{
+		    fontstream = new FileInputStream("/usr/share/fonts/" + fontname + ".ttf");
+		}
+		font = Font.createFont(Font.TRUETYPE_FONT, fontstream);
+		fontstream.close();
 	    }
-	    catch(FileNotFoundException ex)
+	    catch(Exception ex)
 	    {
-	    	fontstream = new FileInputStream("/usr/share/fonts/" + fontname + ".ttf");
+		font = new Font(fontname, fontstyle, 12);
 	    }
-	    font = Font.createFont(Font.TRUETYPE_FONT, fontstream);
-	    fontstream.close();
+	    font = font.deriveFont((float)tox(pt));
+	    fonts.put(key, font);
 	}
-	catch(Exception ex)
-	{
-	    font = new Font(fontname, fontstyle, 12);
-	}
-	font = font.deriveFont((float)tox(pt));
 	gc.setFont(font);
     }
     
@@ -787,6 +1455,7 @@ public class Painter extends Frame
       */
     public void text(Color c, double x, double y, String s)
     {
+	long start = System.nanoTime();
     	// Versatz der linken unteren Ecke der Boundingbox gegenueber 
 	// den Textkoordinaten
     	double bbx = 0;
@@ -794,7 +1463,8 @@ public class Painter extends Frame
 	
 	// Die Boundingbox wird gebraucht, um den Text auszurichten
 	// und um die Textposition mitzufuehren
-	Rectangle2D boundingBox = font.getStringBounds(s, fontRenderContext);
+	TextCache.Entry layout = textCache.get(font, fontRenderContext, s);
+	Rectangle2D boundingBox = layout.bounds;
 	
 	// Aus der Ausrichtung den Versatz berechnen
 	switch(alignHorizontal)
@@ -809,20 +1479,122 @@ public class Painter extends Frame
 	}
 	
 	// Text ausgeben
-	if(c == null)
-    	    gc.drawString(s, (int)(scalex(x) - bbx), (int)(scaley(y) + bby));
-	else
+	flush();
+	touch((int)(scalex(x) - bbx), (int)(scaley(y) + bby - boundingBox.getHeight()),
+	      (int)(scalex(x) - bbx + boundingBox.getWidth()), (int)(scaley(y) + bby + boundingBox.getHeight()/2));
+	if(svg != null)
+	    svg.text(scalex(x) - bbx, scaley(y) + bby, s, font, (c == null?  gc.getColor():  c).getRGB());
+	if(raster())
 	{
-	    gc.setColor(c);
-    	    gc.drawString(s, (int)(scalex(x) - bbx), (int)(scaley(y) + bby));
-	    gc.setColor(color);
+	    if(c == null)
+		layout.draw(gc, (int)(scalex(x) - bbx), (int)(scaley(y) + bby));
+	    else
+	    {
+		gc.setColor(c);
+		layout.draw(gc, (int)(scalex(x) - bbx), (int)(scaley(y) + bby));
+		gc.setColor(color);
+	    }
 	}
 	
 	// Textposition aktualisieren
 	textposX = x + boundingBox.getWidth()/scale;
 	textposY = y;
+	metrics.text(System.nanoTime() - start);
     }
     
+    /** Schreibt alle folgenden Zeichenoperationen zusaetzlich als SVG-Vektorgrafik
+      * in eine Datei. Die Datei waechst mit der Anzahl der Zeichenoperationen,
+      * nicht mit der Pixelzahl.
+      * @param filename Name der SVG-Datei.
+      * @param r true = weiterhin auch ins Pixelbild zeichnen;
+      * false = nur noch die Vektorgrafik schreiben.
+      * @see #svgClose
+      */
+    public void svg(String filename, boolean r) throws IOException
+    {
+	svgClose();
+	svg = new SvgWriter(filename, width, height);
+	if(blank != null)
+	    svg.clear(blank.getRGB());
+	raster = r;
+    }
+
+    /** Schliesst die SVG-Datei ab.
+      * Danach wird wieder nur ins Pixelbild gezeichnet.
+      * @throws IOException wenn beim Schreiben irgendwann ein Fehler aufgetreten ist.
+      */
+    public void svgClose() throws IOException
+    {
+	SvgWriter w = svg;
+	svg = null;
+	raster = true;
+	if(w != null)
+	{
+	    long start = System.nanoTime();
+	    w.close();
+	    metrics.save(System.nanoTime() - start, w.length());
+	}
+    }
+
+    /** Startet die Aufnahme einer Animation.
+      * Jeder Aufruf von {@link #frame} nimmt ein Bild auf. Die Bilder werden
+      * in einem eigenen Thread geschrieben, waehrend weiter gezeichnet wird.
+      * @param filename Name eines GIF, oder ein Muster wie frame%05d.png
+      * fuer einzeln nummerierte Bilder.
+      * @param delay Anzeigedauer pro Bild in Millisekunden, nur fuer GIF.
+      * @see Animation
+      */
+    public void animate(String filename, int delay) throws IOException
+    {
+	animateClose();
+	animation = new Animation(filename, width, height, delay);
+    }
+
+    /** Nimmt ein Bild der laufenden Animation auf.
+      * Ohne laufende Animation passiert nichts.
+      */
+    public void frame() throws IOException
+    {
+	if(animation == null)
+	    return;
+	render();
+	flatten();
+	animation.capture(image());
+    }
+
+    /** Beendet die Animation und wartet, bis alle Bilder geschrieben sind.
+      * @throws IOException wenn beim Schreiben ein Fehler aufgetreten ist.
+      */
+    public void animateClose() throws IOException
+    {
+	Animation a = animation;
+	animation = null;
+	if(a != null)
+	    a.close();
+    }
+
+    /** Stellt die Groesse des Zwischenspeichers fuer gesetzte Texte ein.
+      * Wiederholte Beschriftungen werden dann nicht jedesmal neu gesetzt.
+      * @param capacity Hoechstzahl gespeicherter Texte, Voreinstellung 1024.
+      * @see TextCache
+      */
+    public void textCache(int capacity)
+    {
+    	textCache = new TextCache(capacity);
+    }
+
+    /** Schaltet den Zwischenspeicher fuer Kreise, Ellipsen und Boegen ein oder aus.
+      * Gleiche Formen in gleicher Groesse, Linienbreite und Farbe werden dann
+      * nur einmal gezeichnet und danach aufgestempelt, was bei vielen Punkten
+      * wie in Streudiagrammen ein Vielfaches schneller ist.
+      * @param capacity Hoechstzahl gespeicherter Stempel, 0 = ausschalten.
+      * @see StampCache
+      */
+    public void stamps(int capacity)
+    {
+	stamps = capacity > 0?  new StampCache(capacity):  null;
+    }
+
     /** Liefert die aktuelle, horizontale Textposition.
       * Die naechste Textausgabe ohne Positionsangabe wuerde an dieser
       * horizontalen Position platziert.
@@ -841,9 +1613,13 @@ public class Painter extends Frame
       */
     public void save(String filename) throws IOException
     {
+	render();
+	flatten();
+	long start = System.nanoTime();
 	File f = new File(filename);
 	String extension = f.getName().substring(f.getName().lastIndexOf('.') + 1);
-	ImageIO.write(bufferedImage, extension, f);
+	ImageIO.write(image(), extension, f);
+	metrics.save(System.nanoTime() - start, f.length());
     }
 
     /** Liest eine Zeichenflaeche aus einer Datei.
@@ -869,17 +1645,39 @@ public class Painter extends Frame
       */
     private double scale;
 
+    /** Logische Koordinaten der Mitte der Zeichenflaeche. */
+    private double centerX;
+
+    /** Logische Koordinaten der Mitte der Zeichenflaeche. */
+    private double centerY;
+
     /** Aktuelle Zeichenfarbe. */
     private Color color = Color.BLACK;
 
-    /** Dekoration. */
-    private Insets insets = null;
+    /** Das Fenster, null solange die Flaeche nicht angezeigt wird. */
+    private volatile PainterWindow viewer;
 
-    /** Das Pixelbild in das alle Zeichenoperationen laufen. */
-    private final BufferedImage bufferedImage;
+    /** Das Pixelbild in das alle Zeichenoperationen laufen,
+      * null solange noch nicht hineingezeichnet wurde.
+      */
+    private BufferedImage bufferedImage;
+
+    /** Farbe des letzten clear(), solange das Pixelbild noch nicht angelegt ist. */
+    private Color unpainted;
 
-    /** Der Graphicskontext des Pixelbildes. */
+    /** Farbe des letzten clear(), solange seitdem nichts anderes gezeichnet wurde.
+      * Eine neue SVG-Datei beginnt dann mit dieser Flaeche.
+      */
+    private Color blank;
+
+    /** Der Graphicskontext der aktuellen Ebene oder des Pixelbildes. */
     private Graphics2D gc;
+
+    /** Die Ebenen, null solange direkt ins Pixelbild gezeichnet wird. */
+    private Layers layers;
+
+    /** Die Ebene, in die gezeichnet wird, null ohne Ebenen. */
+    private Layers.Layer layer;
     
     /** Der aktuelle Schriftsatz. */
     private Font font;
@@ -887,6 +1685,15 @@ public class Painter extends Frame
     /** Wird gebraucht um die Groesse eines gerasterten Textes herauszukriegen. */
     private FontRenderContext fontRenderContext;
 
+    /** Bereits geladene Fonts nach Name, Stil und Pixelgroesse. */
+    private final Map<String, Font> fonts = new HashMap<String, Font>();
+
+    /** Zwischenspeicher fuer gesetzte Texte. */
+    private TextCache textCache = new TextCache(1024);
+
+    /** Zwischenspeicher fuer Kreise, Ellipsen und Boegen, null wenn ausgeschaltet. */
+    private StampCache stamps;
+
     /** Der Name des aktuellen Fonts. */    
     private String fontname = "Dialog";
     
@@ -908,9 +1715,60 @@ public class Painter extends Frame
     /** Die vertikale Position der naechsten Textausgabe. */
     private double textposY;
     
+    /** Aktuelle Linienbreite in Pixel. */
+    private double strokeWidth = 1;
+
+    /** Kantenglaettung ein oder aus. */
+    private boolean antialias = true;
+
+    /** Schreibt die Zeichenoperationen als Vektorgrafik, wenn nicht null. */
+    private SvgWriter svg;
+
+    /** Zeichnet ins Pixelbild; false, wenn nur die Vektorgrafik geschrieben wird. */
+    private boolean raster = true;
+
+    /** Laufende Animation, sonst null. */
+    private Animation animation;
+
+    /** Zeichnet Linien direkt in die Pixel, wenn nicht null. */
+    private LineRasterizer rasterizer;
+
+    /** Schuetzt den geaenderten Bereich, wenn live angezeigt wird. */
+    private final Object dirtyLock = new Object();
+
+    /** Geaenderter Bereich seit dem letzten Neuzeichnen, leer wenn rechts < links. */
+    private int dirtyLeft = Integer.MAX_VALUE;
+
+    /** Geaenderter Bereich seit dem letzten Neuzeichnen. */
+    private int dirtyTop = Integer.MAX_VALUE;
+
+    /** Geaenderter Bereich seit dem letzten Neuzeichnen. */
+    private int dirtyRight = Integer.MIN_VALUE;
+
+    /** Geaenderter Bereich seit dem letzten Neuzeichnen. */
+    private int dirtyBottom = Integer.MIN_VALUE;
+
+    /** Zeichnet laufend neu, wenn nicht null. */
+    private java.util.Timer liveTimer;
+
+    /** Abstand der Bilder bei laufender Anzeige in Nanosekunden, 0 = aus. */
+    private long livePeriod;
+
+    /** Zeitpunkt des letzten Zusammensetzens der Ebenen bei laufender Anzeige. */
+    private long flattened;
+
+    /** Zusammengesetzte Ebenen, wenn das Pixelbild nicht TYPE_INT_ARGB ist. */
+    private int[] flatPixels;
+
     /** Dateiname auf die die Ausgabe geschrieben wird, falls ohne Bildschirm benutzt. */
     private String hidden;
     
     /** Regenbogenfarben. */
     private Shades shades;
+
+    /** Die Regenbogenfarben als Color, werden erst beim ersten Gebrauch angelegt. */
+    private Color[] shadeColors;
+
+    /** Zaehler aller Zeichenflaechen. */
+    private static final PainterMetrics metrics = PainterMetrics.get();
 }
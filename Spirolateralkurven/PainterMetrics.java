@@ -0,0 +1,421 @@
+import java.io.*;
+import java.lang.management.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+
+/** Zaehler und Zeiten fuer alle Zeichenflaechen der JVM.
+  * Die Zaehler sind LongAdder und kommen ohne Sperren aus.
+  * Zeit wird nur fuer Texte, das Speichern und die Bilder von Animationen
+  * gemessen, nicht pro Linie.
+  *
+  * <p>Gezaehlt wird erst nach {@link #enable}; bis dahin kostet jeder Aufruf
+  * nur das Lesen eines Schalters. Beim Einschalten werden die Zaehler unter
+  * dem Namen <code>Painter:type=Metrics</code> als MBean angemeldet und
+  * koennen zum Beispiel mit jconsole angesehen werden.
+  * Ist die Systemeigenschaft <code>painter.metrics</code> gesetzt, wird von
+  * Anfang an gezaehlt. Ist ihr Wert nicht leer, werden die Zaehler beim
+  * Beenden der JVM als JSON in die angegebene Datei geschrieben,
+  * bei "-" auf die Standardfehlerausgabe.
+  */
+public class PainterMetrics implements PainterMetricsMBean
+{
+    private PainterMetrics()
+    {
+    }
+
+    /** Liefert die Zaehler der JVM.
+      * @return Die einzige Instanz.
+      */
+    public static PainterMetrics get()
+    {
+	return INSTANCE;
+    }
+
+    /** Schaltet das Zaehlen ein oder aus.
+      * Beim ersten Einschalten werden die Zaehler als MBean angemeldet.
+      * @param on true = zaehlen.
+      */
+    public synchronized void enable(boolean on)
+    {
+	if(on  &&  !registered)
+	{
+	    register();
+	    registered = true;
+	}
+	enabled = on;
+    }
+
+    /** Gibt an, ob gezaehlt wird.
+      * Aufrufer pruefen das, bevor sie Werte nur fuer die Zaehler berechnen.
+      * @return true = es wird gezaehlt.
+      */
+    public boolean enabled()
+    {
+	return enabled;
+    }
+
+    /** Zaehlt eine gezeichnete Linie.
+      * @param length Laenge in Pixel.
+      * @param width Linienbreite in Pixel.
+      */
+    void line(double length, double width)
+    {
+	if(!enabled)
+	    return;
+	lines.increment();
+	pixels.add((long)(length*Math.max(width, 1)));
+    }
+
+    /** Zaehlt eine Linie, die nicht gezeichnet werden musste. */
+    void culled()
+    {
+	if(!enabled)
+	    return;
+	culledLines.increment();
+    }
+
+    /** Zaehlt einen Bogen.
+      * @param w Breite des umschliessenden Rechtecks in Pixel.
+      * @param h Hoehe des umschliessenden Rechtecks in Pixel.
+      * @param arc Laenge des Bogens in Grad.
+      * @param width Linienbreite in Pixel.
+      * @param fill true = gefuellt.
+      */
+    void arc(int w, int h, int arc, double width, boolean fill)
+    {
+	if(!enabled)
+	    return;
+	arcs.increment();
+	double part = Math.min(Math.abs(arc), 360)/360.0;
+	pixels.add((long)(part*(fill?  Math.PI/4*w*h:  Math.PI/2*(w + h)*Math.max(width, 1))));
+    }
+
+    /** Zaehlt eine Ellipse.
+      * @param w Breite in Pixel.
+      * @param h Hoehe in Pixel.
+      * @param width Linienbreite in Pixel.
+      * @param fill true = gefuellt.
+      */
+    void oval(int w, int h, double width, boolean fill)
+    {
+	if(!enabled)
+	    return;
+	ovals.increment();
+	pixels.add((long)(fill?  Math.PI/4*w*h:  Math.PI/2*(w + h)*Math.max(width, 1)));
+    }
+
+    /** Zaehlt ein Rechteck.
+      * @param w Breite in Pixel.
+      * @param h Hoehe in Pixel.
+      * @param width Linienbreite in Pixel.
+      * @param fill true = gefuellt.
+      */
+    void rect(int w, int h, double width, boolean fill)
+    {
+	if(!enabled)
+	    return;
+	rects.increment();
+	pixels.add((long)(fill?  (double)w*h:  2.0*(w + h)*Math.max(width, 1)));
+    }
+
+    /** Zaehlt ein Polygon. Die bemalten Pixel werden dafuer nicht geschaetzt. */
+    void poly()
+    {
+	if(!enabled)
+	    return;
+	polys.increment();
+    }
+
+    /** Zaehlt einen Text.
+      * @param nanos Dauer in Nanosekunden.
+      */
+    void text(long nanos)
+    {
+	if(!enabled)
+	    return;
+	texts.increment();
+	textNanos.add(nanos);
+    }
+
+    /** Zaehlt das Uebermalen der ganzen Flaeche.
+      * @param w Breite in Pixel.
+      * @param h Hoehe in Pixel.
+      */
+    void clear(int w, int h)
+    {
+	if(!enabled)
+	    return;
+	clears.increment();
+	pixels.add((long)w*h);
+    }
+
+    /** Zaehlt einen Strich einer Turtle. */
+    void segment()
+    {
+	if(!enabled)
+	    return;
+	segments.increment();
+    }
+
+    /** Zaehlt einen Wechsel der Zeichenfarbe. */
+    void colorChange()
+    {
+	if(!enabled)
+	    return;
+	colorChanges.increment();
+    }
+
+    /** Zaehlt einen Wechsel der Linienbreite. */
+    void strokeChange()
+    {
+	if(!enabled)
+	    return;
+	strokeChanges.increment();
+    }
+
+    /** Zaehlt eine geschriebene Datei.
+      * @param nanos Dauer in Nanosekunden.
+      * @param bytes Groesse der Datei.
+      */
+    void save(long nanos, long bytes)
+    {
+	if(!enabled)
+	    return;
+	saves.increment();
+	encodeNanos.add(nanos);
+	bytesWritten.add(bytes);
+    }
+
+    /** Zaehlt ein geschriebenes Bild einer Animation.
+      * @param nanos Dauer des Kodierens und Schreibens in Nanosekunden.
+      * @param bytes Geschriebene Bytes.
+      */
+    void frame(long nanos, long bytes)
+    {
+	if(!enabled)
+	    return;
+	frames.increment();
+	encodeNanos.add(nanos);
+	bytesWritten.add(bytes);
+    }
+
+    public long getLines()
+    {
+	return lines.sum();
+    }
+
+    public long getCulledLines()
+    {
+	return culledLines.sum();
+    }
+
+    public long getArcs()
+    {
+	return arcs.sum();
+    }
+
+    public long getOvals()
+    {
+	return ovals.sum();
+    }
+
+    public long getRects()
+    {
+	return rects.sum();
+    }
+
+    public long getPolys()
+    {
+	return polys.sum();
+    }
+
+    public long getTexts()
+    {
+	return texts.sum();
+    }
+
+    public long getClears()
+    {
+	return clears.sum();
+    }
+
+    public long getSegments()
+    {
+	return segments.sum();
+    }
+
+    public double getAverageSegmentsPerSecond()
+    {
+	double seconds = (System.nanoTime() - since)/1e9;
+	return seconds > 0?  getSegments()/seconds:  0;
+    }
+
+    public long getColorChanges()
+    {
+	return colorChanges.sum();
+    }
+
+    public long getStrokeChanges()
+    {
+	return strokeChanges.sum();
+    }
+
+    public long getPixels()
+    {
+	return pixels.sum();
+    }
+
+    public long getTextNanos()
+    {
+	return textNanos.sum();
+    }
+
+    public long getSaves()
+    {
+	return saves.sum();
+    }
+
+    public long getFrames()
+    {
+	return frames.sum();
+    }
+
+    public long getEncodeNanos()
+    {
+	return encodeNanos.sum();
+    }
+
+    public long getBytesWritten()
+    {
+	return bytesWritten.sum();
+    }
+
+    public void reset()
+    {
+	for(LongAdder a: all())
+	    a.reset();
+	since = System.nanoTime();
+    }
+
+    /** Liefert alle Zaehler als JSON-Objekt.
+      * @return Eine Zeile JSON.
+      */
+    public String toJson()
+    {
+	return "{\"lines\":" + getLines()
+	    + ",\"culledLines\":" + getCulledLines()
+	    + ",\"arcs\":" + getArcs()
+	    + ",\"ovals\":" + getOvals()
+	    + ",\"rects\":" + getRects()
+	    + ",\"polys\":" + getPolys()
+	    + ",\"texts\":" + getTexts()
+	    + ",\"clears\":" + getClears()
+	    + ",\"segments\":" + getSegments()
+	    + ",\"averageSegmentsPerSecond\":" + Math.round(getAverageSegmentsPerSecond())
+	    + ",\"colorChanges\":" + getColorChanges()
+	    + ",\"strokeChanges\":" + getStrokeChanges()
+	    + ",\"pixels\":" + getPixels()
+	    + ",\"textNanos\":" + getTextNanos()
+	    + ",\"saves\":" + getSaves()
+	    + ",\"frames\":" + getFrames()
+	    + ",\"encodeNanos\":" + getEncodeNanos()
+	    + ",\"bytesWritten\":" + getBytesWritten()
+	    + "}";
+    }
+
+    private LongAdder[] all()
+    {
+	return new LongAdder[] {lines, culledLines, arcs, ovals, rects, polys, texts, clears, segments,
+				colorChanges, strokeChanges, pixels, textNanos, saves, frames, encodeNanos, bytesWritten};
+    }
+
+    /** Meldet die Zaehler als MBean an und richtet die Ausgabe beim Beenden ein. */
+    private void register()
+    {
+	try
+	{
+	    ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("Painter:type=Metrics"));
+	}
+	catch(JMException | SecurityException ex)
+	{
+	    // Ohne JMX wird trotzdem gezaehlt
+	}
+	String target = System.getProperty("painter.metrics");
+	if(target != null  &&  !target.isEmpty())
+	    Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(target), "PainterMetrics"));
+    }
+
+    /** Schreibt die Zaehler als JSON in eine Datei oder, bei "-", auf die Standardfehlerausgabe. */
+    private void dump(String target)
+    {
+	if(target.equals("-"))
+	{
+	    System.err.println(toJson());
+	    return;
+	}
+	try(Writer w = new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.UTF_8))
+	{
+	    w.write(toJson());
+	    w.write('\n');
+	}
+	catch(IOException ex)
+	{
+	    System.err.println("Painter-Metriken nicht geschrieben: " + ex);
+	}
+    }
+
+    /** Die einzige Instanz. */
+    private static final PainterMetrics INSTANCE = new PainterMetrics();
+
+    static
+    {
+	if(System.getProperty("painter.metrics") != null)
+	    INSTANCE.enable(true);
+    }
+
+    /** true, solange gezaehlt wird. */
+    private volatile boolean enabled;
+
+    /** true, sobald die MBean angemeldet ist. */
+    private boolean registered;
+
+    private final LongAdder lines = new LongAdder();
+
+    private final LongAdder culledLines = new LongAdder();
+
+    private final LongAdder arcs = new LongAdder();
+
+    private final LongAdder ovals = new LongAdder();
+
+    private final LongAdder rects = new LongAdder();
+
+    private final LongAdder polys = new LongAdder();
+
+    private final LongAdder texts = new LongAdder();
+
+    private final LongAdder clears = new LongAdder();
+
+    private final LongAdder segments = new LongAdder();
+
+    private final LongAdder colorChanges = new LongAdder();
+
+    private final LongAdder strokeChanges = new LongAdder();
+
+    /** Ungefaehr bemalte Pixel. */
+    private final LongAdder pixels = new LongAdder();
+
+    private final LongAdder textNanos = new LongAdder();
+
+    private final LongAdder saves = new LongAdder();
+
+    /** Geschriebene Bilder von Animationen. */
+    private final LongAdder frames = new LongAdder();
+
+    private final LongAdder encodeNanos = new LongAdder();
+
+    private final LongAdder bytesWritten = new LongAdder();
+
+    /** Beginn der Zaehlung fuer die Rate der Striche. */
+    private volatile long since = System.nanoTime();
+}
@@ -0,0 +1,64 @@
+/** Schnittstelle der Zaehler von {@link PainterMetrics} fuer JMX.
+  * Alle Werte zaehlen seit dem Start oder dem letzten {@link #reset}
+  * ueber alle Zeichenflaechen der JVM.
+  */
+public interface PainterMetricsMBean
+{
+    /** @return Gezeichnete Linien. */
+    long getLines();
+
+    /** @return Linien, die ganz ausserhalb lagen und nicht gezeichnet wurden. */
+    long getCulledLines();
+
+    /** @return Gezeichnete Boegen. */
+    long getArcs();
+
+    /** @return Gezeichnete Ellipsen und Kreise. */
+    long getOvals();
+
+    /** @return Gezeichnete Rechtecke. */
+    long getRects();
+
+    /** @return Gezeichnete Polygone. */
+    long getPolys();
+
+    /** @return Ausgegebene Texte. */
+    long getTexts();
+
+    /** @return Vollstaendig uebermalte Flaechen. */
+    long getClears();
+
+    /** @return Striche von Turtles. */
+    long getSegments();
+
+    /** @return Durchschnitt der Striche von Turtles pro Sekunde seit dem Start
+      * oder dem letzten Zuruecksetzen, kein aktueller Durchsatz. */
+    double getAverageSegmentsPerSecond();
+
+    /** @return Wechsel der Zeichenfarbe. */
+    long getColorChanges();
+
+    /** @return Wechsel der Linienbreite. */
+    long getStrokeChanges();
+
+    /** @return Ungefaehre Anzahl bemalter Pixel. */
+    long getPixels();
+
+    /** @return Zeit fuer das Setzen und Ausgeben von Texten in Nanosekunden. */
+    long getTextNanos();
+
+    /** @return Gespeicherte Dateien. */
+    long getSaves();
+
+    /** @return Geschriebene Bilder von Animationen. */
+    long getFrames();
+
+    /** @return Zeit fuer das Kodieren und Schreiben von Dateien und Bildern in Nanosekunden. */
+    long getEncodeNanos();
+
+    /** @return Geschriebene Bytes. */
+    long getBytesWritten();
+
+    /** Setzt alle Zaehler auf 0. */
+    void reset();
+}
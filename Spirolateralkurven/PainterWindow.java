@@ -0,0 +1,73 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.*;
+
+/** Fenster, das das Pixelbild eines {@link Painter} anzeigt.
+  * Es wird erst angelegt, wenn die Zeichenflaeche sichtbar werden soll;
+  * ohne Fenster braucht ein Painter keinen Bildschirm.
+  */
+class PainterWindow extends Frame
+{
+    /** Oeffnet das Fenster in der Groesse des Bildes.
+      * @param image Das Pixelbild der Zeichenflaeche.
+      */
+    PainterWindow(BufferedImage image)
+    {
+	this.image = image;
+
+	/* Close-Button: Fenster schliessen */
+	addWindowListener(new WindowAdapter()
+			  {
+			      public void windowClosing(WindowEvent e)
+			      {
+				  System.exit(0);
+			      }
+			  }
+			 );
+
+	setVisible(true);
+
+	/* Dekoration ausmessen */
+    	insets = getInsets();
+
+    	/* Groesse entsprechend Dekoration einstellen */
+    	setSize(image.getWidth() + insets.left + insets.right, image.getHeight() + insets.bottom + insets.top);
+    }
+
+    /** Laesst einen Bereich des Bildes neu zeichnen.
+      * @param tm Hoechstens so viele Millisekunden bis zum Neuzeichnen.
+      * @param x Linke Pixelspalte im Bild.
+      * @param y Obere Pixelzeile im Bild.
+      * @param w Breite in Pixel.
+      * @param h Hoehe in Pixel.
+      */
+    void repaintImage(long tm, int x, int y, int w, int h)
+    {
+	repaint(tm, x + insets.left, y + insets.top, w, h);
+    }
+
+    /** Callbackmethode zum Neuzeichnen des Fensters.
+      * Das Pixelbild wird nicht mit flush() verworfen, damit es von der
+      * Grafikkarte beschleunigt dargestellt werden kann.
+      * @param g Graphics context.
+      */
+    public void paint(Graphics g)
+    {
+	g.drawImage(image, insets.left, insets.top, this);
+    }
+
+    /** Callbackmethode zum Neuzeichnen des Fensters.
+      * Es wird nur der Bereich kopiert, den der Clip von g vorgibt.
+      * @param g Graphics context.
+      */
+    public void update(Graphics g)
+    {
+	g.drawImage(image, insets.left, insets.top, this);
+    }
+
+    /** Das angezeigte Pixelbild. */
+    private final BufferedImage image;
+
+    /** Breite der Dekoration. */
+    private final Insets insets;
+}
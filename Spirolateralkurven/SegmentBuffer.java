@@ -0,0 +1,102 @@
+/** Liste von Strichen in primitiven Arrays.
+  * Jeder Strich hat zwei Endpunkte in logischen Koordinaten, eine Farbe
+  * und eine Linienbreite. Die Arrays wachsen bei Bedarf und werden beim
+  * Leeren wiederverwendet.
+  *
+  * <p>Ein Puffer gehoert immer genau einem Thread und braucht darum keine Sperren.
+  */
+public class SegmentBuffer
+{
+    /** Legt einen leeren Puffer an. */
+    public SegmentBuffer()
+    {
+	this(256);
+    }
+
+    /** Legt einen leeren Puffer an.
+      * @param capacity Anzahl Striche, fuer die anfangs Platz ist.
+      */
+    public SegmentBuffer(int capacity)
+    {
+	capacity = Math.max(capacity, 1);
+	coords = new double[4*capacity];
+	colors = new int[capacity];
+	widths = new double[capacity];
+    }
+
+    /** Haengt einen Strich an.
+      * @param x0 Horizontale Koordinate des Startpunktes.
+      * @param y0 Vertikale Koordinate des Startpunktes.
+      * @param x1 Horizontale Koordinate des Zielpunktes.
+      * @param y1 Vertikale Koordinate des Zielpunktes.
+      * @param argb Farbe 0xAARRGGBB.
+      * @param w Linienbreite in logischen Koordinaten, 0 = Voreinstellung des Painters.
+      */
+    public void add(double x0, double y0, double x1, double y1, int argb, double w)
+    {
+	if(size == colors.length)
+	{
+	    coords = java.util.Arrays.copyOf(coords, 2*coords.length);
+	    colors = java.util.Arrays.copyOf(colors, 2*colors.length);
+	    widths = java.util.Arrays.copyOf(widths, 2*widths.length);
+	}
+	int i = 4*size;
+	coords[i] = x0;
+	coords[i + 1] = y0;
+	coords[i + 2] = x1;
+	coords[i + 3] = y1;
+	colors[size] = argb;
+	widths[size] = w;
+	size++;
+    }
+
+    /** Leert den Puffer, ohne die Arrays freizugeben. */
+    public void clear()
+    {
+	size = 0;
+    }
+
+    /** Liefert die Anzahl Striche.
+      * @return Anzahl Striche.
+      */
+    public int size()
+    {
+	return size;
+    }
+
+    /** Liefert die Koordinaten.
+      * @return Je 4 Koordinaten x0, y0, x1, y1 pro Strich. Das Array kann laenger sein.
+      */
+    public double[] coords()
+    {
+	return coords;
+    }
+
+    /** Liefert die Farben.
+      * @return Eine Farbe 0xAARRGGBB pro Strich. Das Array kann laenger sein.
+      */
+    public int[] colors()
+    {
+	return colors;
+    }
+
+    /** Liefert die Linienbreiten.
+      * @return Eine Linienbreite pro Strich. Das Array kann laenger sein.
+      */
+    public double[] widths()
+    {
+	return widths;
+    }
+
+    /** Koordinaten, je 4 pro Strich. */
+    private double[] coords;
+
+    /** Farben, eine pro Strich. */
+    private int[] colors;
+
+    /** Linienbreiten, eine pro Strich. */
+    private double[] widths;
+
+    /** Anzahl Striche. */
+    private int size;
+}
@@ -0,0 +1,255 @@
+import java.io.*;
+import java.util.concurrent.*;
+
+/** Abnehmer eines {@link SegmentStream}.
+  * Unterklassen verarbeiten in {@link #accept} einen Block von Strichen nach
+  * dem anderen, immer im selben Thread nacheinander, und schliessen in
+  * {@link #finish} ab. Mit {@link #await} wartet man, bis alles verarbeitet ist.
+  *
+  * <p>Der Abnehmer fordert immer nur wenige Bloecke im Voraus an.
+  * Ist er langsamer als die Turtle, wartet die Turtle auf ihn.
+  *
+  * <p>Das folgende Beispiel malt eine Kurve, schreibt sie als SVG und
+  * misst sie aus, alles in einem Durchlauf:
+<pre>SegmentStream s = new SegmentStream();
+SegmentSink png = new SegmentSink.Painting(new Painter(1024, 1024, 40, false));
+SegmentSink svg = SegmentSink.svg("kurve.svg", 1024, 1024, 40);
+SegmentSink.Bounds box = new SegmentSink.Bounds();
+s.subscribe(png);
+s.subscribe(svg);
+s.subscribe(box);
+turtlePainter.stream(s);
+... zeichnen ...
+s.close();
+SegmentSink.await(png, svg, box);</pre>
+  */
+public abstract class SegmentSink implements Flow.Subscriber<SegmentBuffer>
+{
+    /** Verarbeitet einen Block von Strichen.
+      * Der Block darf nur gelesen werden, andere Abnehmer lesen ihn gleichzeitig.
+      * @param b Striche.
+      */
+    protected abstract void accept(SegmentBuffer b);
+
+    /** Wird nach dem letzten Block aufgerufen.
+      * @throws IOException wenn das Abschliessen misslingt.
+      */
+    protected void finish() throws IOException
+    {
+    }
+
+    public void onSubscribe(Flow.Subscription s)
+    {
+	subscription = s;
+	s.request(AHEAD);
+    }
+
+    public void onNext(SegmentBuffer b)
+    {
+	accept(b);
+	subscription.request(1);
+    }
+
+    public void onError(Throwable t)
+    {
+	error = t;
+	done.countDown();
+    }
+
+    public void onComplete()
+    {
+	try
+	{
+	    finish();
+	}
+	catch(Throwable t)
+	{
+	    error = t;
+	}
+	done.countDown();
+    }
+
+    /** Wartet, bis der Strom geschlossen und alles verarbeitet ist.
+      * @throws IOException wenn das Verarbeiten mit einer IOException gescheitert ist.
+      * @throws InterruptedException wenn der Thread beim Warten unterbrochen wird.
+      */
+    public void await() throws IOException, InterruptedException
+    {
+	done.await();
+	if(error instanceof IOException)
+	    throw (IOException)error;
+	if(error instanceof RuntimeException)
+	    throw (RuntimeException)error;
+	if(error instanceof Error)
+	    throw (Error)error;
+	if(error != null)
+	    throw new IllegalStateException(error);
+    }
+
+    /** Wartet auf mehrere Abnehmer.
+      * @param sinks Abnehmer.
+      */
+    public static void await(SegmentSink... sinks) throws IOException, InterruptedException
+    {
+	for(SegmentSink s: sinks)
+	    s.await();
+    }
+
+    /** Liefert einen Abnehmer, der die Striche als SVG-Datei schreibt.
+      * Die Datei ist fertig, wenn {@link #await} zurueckkehrt.
+      * @param filename Name der SVG-Datei.
+      * @param w Pixelbreite.
+      * @param h Pixelhoehe.
+      * @param d Logische Breite.
+      */
+    public static Painting svg(String filename, int w, int h, double d) throws IOException
+    {
+	Painter p = new Painter(w, h, d, false);
+	p.svg(filename, false);
+	return new Painting(p);
+    }
+
+    /** Malt die Striche mit einem Painter, ins Pixelbild oder als SVG.
+      * Der Painter darf nicht gleichzeitig anders benutzt werden und
+      * nicht selbst in den Strom schreiben.
+      */
+    public static class Painting extends SegmentSink
+    {
+	/** @param p Painter, der malt. */
+	public Painting(Painter p)
+	{
+	    painter = p;
+	}
+
+	protected void accept(SegmentBuffer b)
+	{
+	    painter.segments(b);
+	}
+
+	/** Schliesst eine SVG-Datei ab, sonst passiert nichts. */
+	protected void finish() throws IOException
+	{
+	    painter.svgClose();
+	}
+
+	/** Liefert den Painter.
+	  * @return Painter.
+	  */
+	public Painter painter()
+	{
+	    return painter;
+	}
+
+	/** Der Painter, der malt. */
+	private final Painter painter;
+    }
+
+    /** Misst die Boundingbox aller Striche aus. */
+    public static class Bounds extends SegmentSink
+    {
+	protected void accept(SegmentBuffer b)
+	{
+	    double[] xy = b.coords();
+	    for(int i = 0; i < 4*b.size(); i += 2)
+	    {
+		minX = Math.min(minX, xy[i]);
+		maxX = Math.max(maxX, xy[i]);
+		minY = Math.min(minY, xy[i + 1]);
+		maxY = Math.max(maxY, xy[i + 1]);
+	    }
+	}
+
+	/** @return Kleinste horizontale Koordinate, +unendlich ohne Striche. */
+	public double minX()
+	{
+	    return minX;
+	}
+
+	/** @return Kleinste vertikale Koordinate, +unendlich ohne Striche. */
+	public double minY()
+	{
+	    return minY;
+	}
+
+	/** @return Groesste horizontale Koordinate, -unendlich ohne Striche. */
+	public double maxX()
+	{
+	    return maxX;
+	}
+
+	/** @return Groesste vertikale Koordinate, -unendlich ohne Striche. */
+	public double maxY()
+	{
+	    return maxY;
+	}
+
+	private double minX = Double.POSITIVE_INFINITY;
+
+	private double minY = Double.POSITIVE_INFINITY;
+
+	private double maxX = Double.NEGATIVE_INFINITY;
+
+	private double maxY = Double.NEGATIVE_INFINITY;
+    }
+
+    /** Zaehlt die Striche und misst ihre Laenge. */
+    public static class Stats extends SegmentSink
+    {
+	protected void accept(SegmentBuffer b)
+	{
+	    double[] xy = b.coords();
+	    for(int i = 0; i < b.size(); i++)
+	    {
+		double l = Math.hypot(xy[4*i + 2] - xy[4*i], xy[4*i + 3] - xy[4*i + 1]);
+		length += l;
+		longest = Math.max(longest, l);
+	    }
+	    count += b.size();
+	    chunks++;
+	}
+
+	/** @return Anzahl Striche. */
+	public long count()
+	{
+	    return count;
+	}
+
+	/** @return Anzahl Bloecke. */
+	public long chunks()
+	{
+	    return chunks;
+	}
+
+	/** @return Gesamtlaenge in logischen Koordinaten. */
+	public double length()
+	{
+	    return length;
+	}
+
+	/** @return Laenge des laengsten Strichs. */
+	public double longest()
+	{
+	    return longest;
+	}
+
+	private long count;
+
+	private long chunks;
+
+	private double length;
+
+	private double longest;
+    }
+
+    /** So viele Bloecke werden im Voraus angefordert. */
+    private static final int AHEAD = 4;
+
+    /** Die Verbindung zum Strom. */
+    private Flow.Subscription subscription;
+
+    /** Ist offen, bis der Strom zu Ende verarbeitet ist. */
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    /** Der Fehler, an dem die Verarbeitung gescheitert ist, sonst null. */
+    private volatile Throwable error;
+}
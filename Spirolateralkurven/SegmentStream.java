@@ -0,0 +1,92 @@
+import java.util.concurrent.*;
+
+/** Verteilt die Striche einer Turtle als Strom an beliebig viele Abnehmer.
+  * Die Striche werden in {@link SegmentBuffer} zu je chunk Strichen gesammelt
+  * und erst als ganzer Block veroeffentlicht. Jeder Abnehmer, etwa ein
+  * {@link SegmentSink}, bekommt jeden Block in seinem eigenen Thread;
+  * Pixelbild, SVG-Datei und Statistik entstehen so gleichzeitig aus
+  * einem einzigen Durchlauf der Turtle.
+  *
+  * <p>Ist ein Abnehmer so weit im Rueckstand, dass sein Puffer voll ist,
+  * wartet die Turtle beim naechsten vollen Block auf ihn.
+  * Veroeffentlichte Bloecke werden nicht mehr veraendert und von allen
+  * Abnehmern nur gelesen.
+  *
+  * <p>Striche anhaengen darf immer nur ein Thread.
+  * @see TurtlePainter#stream
+  */
+public class SegmentStream extends SubmissionPublisher<SegmentBuffer>
+{
+    /** Legt einen Strom mit Bloecken zu 4096 Strichen an, die im gemeinsamen
+      * Thread-Pool ausgeliefert werden.
+      */
+    public SegmentStream()
+    {
+	this(ForkJoinPool.commonPool(), 4096, Flow.defaultBufferSize());
+    }
+
+    /** Legt einen Strom an.
+      * @param executor Liefert die Bloecke an die Abnehmer aus.
+      * @param chunk Anzahl Striche pro Block.
+      * @param buffered Hoechstzahl Bloecke, die ein Abnehmer im Rueckstand sein darf.
+      */
+    public SegmentStream(Executor executor, int chunk, int buffered)
+    {
+	super(executor, buffered);
+	this.chunk = Math.max(chunk, 1);
+	current = new SegmentBuffer(this.chunk);
+    }
+
+    /** Haengt einen Strich an und veroeffentlicht den Block, sobald er voll ist.
+      * @param x0 Horizontale Koordinate des Startpunktes.
+      * @param y0 Vertikale Koordinate des Startpunktes.
+      * @param x1 Horizontale Koordinate des Zielpunktes.
+      * @param y1 Vertikale Koordinate des Zielpunktes.
+      * @param argb Farbe 0xAARRGGBB.
+      * @param w Linienbreite in logischen Koordinaten, 0 = Voreinstellung des Painters.
+      */
+    public void add(double x0, double y0, double x1, double y1, int argb, double w)
+    {
+	current.add(x0, y0, x1, y1, argb, w);
+	if(current.size() == chunk)
+	    flush();
+    }
+
+    /** Haengt alle Striche eines Puffers an.
+      * @param b Striche, zum Beispiel von einer {@link Turtle}.
+      */
+    public void add(SegmentBuffer b)
+    {
+	double[] xy = b.coords();
+	int[] colors = b.colors();
+	double[] widths = b.widths();
+	for(int i = 0; i < b.size(); i++)
+	    add(xy[4*i], xy[4*i + 1], xy[4*i + 2], xy[4*i + 3], colors[i], widths[i]);
+    }
+
+    /** Veroeffentlicht den angefangenen Block, auch wenn er nicht voll ist.
+      */
+    public void flush()
+    {
+	if(current.size() == 0)
+	    return;
+	submit(current);
+	current = new SegmentBuffer(chunk);
+    }
+
+    /** Veroeffentlicht den letzten Block und beendet den Strom.
+      * Die Abnehmer bekommen danach onComplete.
+      */
+    public void close()
+    {
+	if(!isClosed())
+	    flush();
+	super.close();
+    }
+
+    /** Anzahl Striche pro Block. */
+    private final int chunk;
+
+    /** Der Block, der gerade gefuellt wird. */
+    private SegmentBuffer current;
+}
@@ -23,38 +23,203 @@ public class Shades
       */
     public Shades(int s, int l)
     {
-        steps = s;
-        low = l;
-        offset = 128; // rng.nextInt(6*256);
+        this(s, l, 128); // rng.nextInt(6*256);
     }
 
     /** Ctor für s gleichmäßig verteilte Farben mit einer Sättigung von l
       * und einer Startfarbe r.
+      * Die ganze Palette wird hier einmal berechnet, alle weiteren Abfragen
+      * lesen nur noch aus der Tabelle.
       * @param s Anzahl gewünschter Farben.
       * @param l Sättigung.
       * @param r Startfarbe. Dabei werden jeweils 60° in 256 Schritte aufgeteilt.
       * 6·256 = 360° = der ganze Umfang des HLS-Kegels.
       * <p>0 = rot, 256 = gelb, 2·256 = grün, 3·256 = cyan, 4·256 = blau, 5·256 = magenta, 6·256 = rot, ...
       * <p>Werte >= 6·256  und < 0 werden in das zulässige Intervall abgebildet.
+      * @throws IllegalArgumentException wenn s < 1 ist.
       */
     public Shades(int s, int l, int r)
     {
+        if(s < 1)
+            throw new IllegalArgumentException("Mindestens eine Farbe, nicht " + s);
         steps = s;
         low = l;
         offset = Math.abs(r)%(6*256);
+        argb = new int[steps];
+        for(int i = 0; i < steps; i++)
+            argb[i] = hue((int)((long)i*6*256/steps + offset)%(6*256));
+    }
+
+    /** Liefert die Anzahl der Farben.
+      * @return Anzahl Farben, wie im Konstruktor angegeben.
+      */
+    public int size()
+    {
+        return steps;
     }
 
     /** Liefert die Farbe zum gegebenen Index.
       * @param n Farbindex von 0 bis (n-1), wobei n im Konstruktor angegeben wurde.
-      * Zu grosse n werden mit Modulus reduziert.
+      * Zu grosse und negative n werden mit Modulus reduziert.
       * @return int-Array mit 3 Elementen für Rot, Grün, Blau.
       */
     public int[] shade(int n)
+    {
+        int c = shadeRgb(n);
+        return new int[] {(c >> 16) & 0xFF, (c >> 8) & 0xFF, c & 0xFF};
+    }
+
+    /** Liefert die Farbe zum gegebenen Index ohne ein neues Objekt anzulegen.
+      * @param n Farbindex von 0 bis (n-1), wobei n im Konstruktor angegeben wurde.
+      * Zu grosse und negative n werden mit Modulus reduziert.
+      * @return Farbe als gepacktes int in der Darstellung 0xAARRGGBB, Alpha ist immer 255.
+      */
+    public int shadeRgb(int n)
+    {
+        return argb[Math.floorMod(n, steps)];
+    }
+
+    /** Kopiert die ganze Palette in ein Array.
+      * Ist dest laenger als die Palette, wird sie zyklisch wiederholt.
+      * @param dest Ziel, Farben in der Darstellung 0xAARRGGBB.
+      */
+    public void fill(int[] dest)
+    {
+        for(int i = 0; i < dest.length; i += steps)
+            System.arraycopy(argb, 0, dest, i, Math.min(steps, dest.length - i));
+    }
+
+    /** Liefert die Farbe zum gegebenen Index.
+      * Die Texte werden beim ersten Aufruf für die ganze Palette erzeugt.
+      * @param n Farbindex von 0 bis (n-1), wobei n im Konstruktor angegeben wurde.
+      * Zu grosse und negative n werden mit Modulus reduziert.
+      * @return RGB-Farbe in der Darstellung #RRGGBB
+      * mit 2 Hexziffern pro Primärfarbe.
+      */
+    public String shadehex(int n)
+    {
+        if(hex == null)
+        {
+            String[] h = new String[steps];
+            for(int i = 0; i < steps; i++)
+                h[i] = String.format("#%06X", argb[i] & 0xFFFFFF);
+            hex = h;
+        }
+        return hex[Math.floorMod(n, steps)];
+    }
+
+    /** Schaltet den Verlaufsmodus für den ganzen Farbkreis ein.
+      * @param resolution Anzahl Tabelleneinträge, zum Beispiel 4096.
+      * @see #gradient(int, int)
+      */
+    public void gradient(int resolution)
+    {
+        gradient(resolution, 6*256);
+    }
+
+    /** Schaltet den Verlaufsmodus ein.
+      * Dabei wird ein Bogen des Farbkreises ab der Startfarbe in eine Tabelle
+      * abgetastet, aus der {@link #gradientRgb} und {@link #gradientRgbLerp}
+      * zu einem stetigen Parameter lesen.
+      * Zwischen den 256 Schritten pro 60° wird linear interpoliert.
+      * Ist der Bogen kürzer als der ganze Kreis, enthält der letzte
+      * Tabelleneintrag genau die Endfarbe des Bogens.
+      * @param resolution Anzahl Tabelleneinträge.
+      * Wird auf die nächste Zweierpotenz aufgerundet.
+      * @param arc Länge des Bogens in den Einheiten der Startfarbe, 6·256 = ganzer Kreis.
+      * Nur ganze Vielfache davon werden zyklisch gelesen.
+      * @throws IllegalArgumentException wenn arc <= 0 ist.
+      */
+    public void gradient(int resolution, int arc)
+    {
+        if(arc <= 0)
+            throw new IllegalArgumentException("Der Bogen muss positiv sein, nicht " + arc);
+        int size = Integer.highestOneBit(Math.max(resolution, 2) - 1) << 1;
+        boolean c = arc%(6*256) == 0;
+        int[] t = new int[size];
+        for(int i = 0; i < size; i++)
+        {
+            double x = offset + (double)i*arc/(c?  size:  size - 1);
+            int x0 = (int)x;
+            t[i] = lerp(hue(x0%(6*256)), hue((x0 + 1)%(6*256)), (int)((x - x0)*256));
+        }
+        lut = t;
+        mask = size - 1;
+        cyclic = c;
+    }
+
+    /** Liefert die Farbe zum stetigen Parameter t aus der Verlaufstabelle.
+      * Der Zugriff kommt ohne neues Objekt aus.
+      * @param t Parameter, 0 = Startfarbe, 1 = Ende des Bogens.
+      * Beim ganzen Kreis werden Werte ausserhalb von [0, 1) zyklisch abgebildet,
+      * bei kürzeren Bögen auf [0, 1] begrenzt.
+      * @return Farbe in der Darstellung 0xAARRGGBB.
+      * @throws IllegalStateException wenn der Verlaufsmodus nicht eingeschaltet ist.
+      * @see #gradient(int, int)
+      */
+    public int gradientRgb(double t)
+    {
+        checkGradient();
+        if(cyclic)
+            return lut[(int)Math.floor(t*lut.length) & mask];
+        return lut[(int)(clamp(t)*mask + 0.5)];
+    }
+
+    /** Wie {@link #gradientRgb}, aber zwischen den beiden benachbarten
+      * Tabelleneinträgen wird linear interpoliert.
+      * @param t Parameter, 0 = Startfarbe, 1 = Ende des Bogens.
+      * @return Farbe in der Darstellung 0xAARRGGBB.
+      * @throws IllegalStateException wenn der Verlaufsmodus nicht eingeschaltet ist.
+      */
+    public int gradientRgbLerp(double t)
+    {
+        checkGradient();
+        if(cyclic)
+        {
+            double f = t*lut.length;
+            int i = (int)Math.floor(f);
+            return lerp(lut[i & mask], lut[(i + 1) & mask], (int)((f - i)*256));
+        }
+        double f = clamp(t)*mask;
+        int i = (int)f;
+        return lerp(lut[i], lut[Math.min(i + 1, mask)], (int)((f - i)*256));
+    }
+
+    /** Prüft, ob {@link #gradient} schon aufgerufen wurde. */
+    private void checkGradient()
+    {
+        if(lut == null)
+            throw new IllegalStateException("Der Verlaufsmodus ist nicht eingeschaltet, erst gradient() aufrufen");
+    }
+
+    /** Begrenzt t auf [0, 1], NaN wird 0. */
+    private static double clamp(double t)
+    {
+        return t > 0?  Math.min(t, 1):  0;
+    }
+
+    /** Mischt zwei Farben komponentenweise.
+      * @param a Erste Farbe 0xAARRGGBB.
+      * @param b Zweite Farbe 0xAARRGGBB.
+      * @param w Gewicht der zweiten Farbe von 0 bis 256.
+      * @return Mischfarbe mit Alpha 255.
+      */
+    static int lerp(int a, int b, int w)
+    {
+        int rb = ((a & 0xFF00FF)*(256 - w) + (b & 0xFF00FF)*w) >>> 8;
+        int g = ((a & 0x00FF00)*(256 - w) + (b & 0x00FF00)*w) >>> 8;
+        return 0xFF000000 | rb & 0xFF00FF | g & 0x00FF00;
+    }
+
+    /** Berechnet eine Farbe auf dem Umfang des HLS-Kegels.
+      * @param x Position auf dem Umfang von 0 bis 6·256-1.
+      * @return Farbe in der Darstellung 0xAARRGGBB.
+      */
+    private int hue(int x)
     {
         int r;
         int g;
         int b;
-        int x = (n%steps*6*256/steps + offset)%(6*256);
         if(x < 256)
         {
             r = 255;
@@ -91,19 +256,7 @@ public class Shades
             g = 0;
             b = 6*256 - x - 1;
         }
-        return new int[] {scale(r), scale(g), scale(b)};
-    }
-
-    /** Liefert die Farbe zum gegebenen Index.
-      * @param n Farbindex von 0 bis (n-1), wobei n im Konstruktor angegeben wurde.
-      * Zu grosse n werden mit Modulus reduziert.
-      * @return RGB-Farbe in der Darstellung #RRGGBB
-      * mit 2 Hexziffern pro Primärfarbe.
-      */
-    public String shadehex(int n)
-    {
-        int[] rgb = shade(n);
-        return String.format("#%02X%02X%02X", rgb[0], rgb[1], rgb[2]);
+        return 0xFF000000 | scale(r) << 16 | scale(g) << 8 | scale(b);
     }
 
     private int scale(int x)
@@ -111,11 +264,26 @@ public class Shades
         return low + x*(255 - low)/255;
     }
 
-    private int steps;
+    private final int steps;
 
     private int low;
 
     private int offset;
 
+    /** Die vorberechnete Palette, eine Farbe 0xAARRGGBB pro Index. */
+    private final int[] argb;
+
+    /** Die Palette als Texte #RRGGBB, wird erst bei Bedarf angelegt. */
+    private String[] hex;
+
+    /** Die Verlaufstabelle, deren Länge eine Zweierpotenz ist. */
+    private int[] lut;
+
+    /** Länge der Verlaufstabelle - 1, zum Abbilden auf gültige Indizes. */
+    private int mask;
+
+    /** true, wenn die Verlaufstabelle den ganzen Kreis umfasst. */
+    private boolean cyclic;
+
     private final Random rng = new Random();
 }
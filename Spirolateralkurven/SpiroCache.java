@@ -0,0 +1,205 @@
+import java.io.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.awt.image.*;
+import javax.imageio.*;
+
+/** Zwischenspeicher fuer fertig gezeichnete Spirolateralkurven auf der Platte.
+  *
+  * <p>Viele Parameter ergeben dieselbe Figur: Winkel, die sich um ein
+  * Vielfaches von 360 Grad unterscheiden, sind gleich, und die Winkel a und
+  * 360-a ergeben Spiegelbilder an der Waagerechten.
+  * {@link #key} bildet die Parameter darum auf eine kanonische Form ab;
+  * gespeichert wird nur die Figur zum kanonischen Winkel.
+  * Die Anzahl Strecken pro Durchgang geht unveraendert ein, denn andere
+  * Anzahlen ergeben andere Streckenlaengen und damit andere Figuren.
+  *
+  * <p>Die Dateinamen sind der SHA-256 des Schluessels, zu jedem Schluessel gibt
+  * es ein Bild (.png). Wird der Speicher zu gross,
+  * fliegen die am laengsten nicht benutzten Eintraege heraus; als Zeitpunkt
+  * der Benutzung dient das Aenderungsdatum der Dateien.
+  */
+public class SpiroCache
+{
+    /** Oeffnet einen Zwischenspeicher.
+      * @param dir Verzeichnis, wird bei Bedarf angelegt.
+      * @param maxBytes Hoechstgroesse aller Dateien zusammen.
+      */
+    public SpiroCache(File dir, long maxBytes) throws IOException
+    {
+	this.dir = dir;
+	this.maxBytes = maxBytes;
+	Files.createDirectories(dir.toPath());
+    }
+
+    /** Bildet den Winkel auf den kanonischen Bereich 0 bis 180 Grad ab.
+      * @param angle Drehwinkel in Grad.
+      * @return Kanonischer Winkel.
+      * @see #mirrored
+      */
+    public static int canonicalAngle(int angle)
+    {
+	int a = Math.floorMod(angle, 360);
+	return Math.min(a, 360 - a);
+    }
+
+    /** Gibt an, ob die Figur das Spiegelbild der Figur zum kanonischen Winkel ist.
+      * @param angle Drehwinkel in Grad.
+      * @return true, wenn die Figur an der Waagerechten gespiegelt werden muss.
+      */
+    public static boolean mirrored(int angle)
+    {
+	return Math.floorMod(angle, 360) > 180;
+    }
+
+    /** Bildet den Schluessel fuer eine Figur.
+      * @param angle Drehwinkel in Grad.
+      * @param repetitions Anzahl Strecken pro Durchgang.
+      * @param edgeLength Logische Breite, 0 = automatisch eingepasst.
+      * @param w Pixelbreite.
+      * @param h Pixelhoehe.
+      * @param mode Darstellungsart, zum Beispiel "density" oder "".
+      * @return Kanonischer Schluessel.
+      */
+    public static String key(int angle, int repetitions, int edgeLength, int w, int h, String mode)
+    {
+	return canonicalAngle(angle) + "/" + repetitions + "/" + Math.max(edgeLength, 0) + "/" + w + "x" + h + "/" + mode;
+    }
+
+    /** Kopiert das Bild zu einem Schluessel in eine Datei.
+      * @param key Schluessel.
+      * @param mirrored true = an der Waagerechten gespiegelt ausgeben.
+      * @param target Zieldatei, das Format haengt von der Extension ab.
+      * @return false, wenn es kein Bild zu dem Schluessel gibt.
+      */
+    public boolean getImage(String key, boolean mirrored, File target) throws IOException
+    {
+	File f = file(key, ".png");
+	if(!f.exists())
+	{
+	    misses++;
+	    return false;
+	}
+	hits++;
+	f.setLastModified(System.currentTimeMillis());
+	if(!mirrored  &&  target.getName().toLowerCase().endsWith(".png"))
+	{
+	    Files.copy(f.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	    return true;
+	}
+	BufferedImage image = ImageIO.read(f);
+	if(mirrored)
+	    flip(image);
+	String extension = target.getName().substring(target.getName().lastIndexOf('.') + 1);
+	ImageIO.write(image, extension, target);
+	return true;
+    }
+
+    /** Legt ein gezeichnetes Bild zu einem Schluessel ab.
+      * @param key Schluessel.
+      * @param image Bilddatei der Figur zum kanonischen Winkel.
+      */
+    public void putImage(String key, File image) throws IOException
+    {
+	BufferedImage bi = ImageIO.read(image);
+	if(bi == null)
+	    throw new IOException("Kein lesbares Bild: " + image);
+	File f = file(key, ".png");
+	File tmp = Files.createTempFile(dir.toPath(), f.getName(), ".tmp").toFile();
+	ImageIO.write(bi, "png", tmp);
+	Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	evict();
+    }
+
+    /** Liefert die Anzahl Bildabfragen, die aus dem Speicher bedient wurden.
+      * @return Treffer.
+      */
+    public long hits()
+    {
+	return hits;
+    }
+
+    /** Liefert die Anzahl Bildabfragen, fuer die neu gezeichnet werden muss.
+      * @return Fehlschlaege.
+      */
+    public long misses()
+    {
+	return misses;
+    }
+
+    /** Loescht die am laengsten nicht benutzten Dateien, bis der Speicher
+      * wieder klein genug ist.
+      */
+    private void evict()
+    {
+	File[] files = dir.listFiles((d, name) -> name.endsWith(".png"));
+	if(files == null)
+	    return;
+	long total = 0;
+	for(File f: files)
+	    total += f.length();
+	if(total <= maxBytes)
+	    return;
+	Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+	for(File f: files)
+	{
+	    if(total <= maxBytes)
+		break;
+	    long size = f.length();
+	    if(f.delete())
+		total -= size;
+	}
+    }
+
+    /** Spiegelt ein Bild an der Waagerechten, genau so, wie Painter die
+      * gespiegelte Figur zeichnen wuerde.
+      * Painter bildet y auf h/2 - scale*y ab, mit ganzzahligem h/2; Zeile r
+      * wird also zu Zeile 2*(h/2) - r. Bei gerader Hoehe hat Zeile 0 kein
+      * Gegenstueck und bleibt, wie sie ist.
+      */
+    private static void flip(BufferedImage image)
+    {
+	int w = image.getWidth();
+	int h = image.getHeight();
+	int c = h/2*2;
+	int[] top = new int[w];
+	int[] bottom = new int[w];
+	for(int y = Math.max(0, c - (h - 1)); y < c - y; y++)
+	{
+	    image.getRGB(0, y, w, 1, top, 0, w);
+	    image.getRGB(0, c - y, w, 1, bottom, 0, w);
+	    image.setRGB(0, y, w, 1, bottom, 0, w);
+	    image.setRGB(0, c - y, w, 1, top, 0, w);
+	}
+    }
+
+    /** Liefert die Datei zu einem Schluessel. */
+    private File file(String key, String extension)
+    {
+	try
+	{
+	    byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes("UTF-8"));
+	    StringBuilder sb = new StringBuilder();
+	    for(byte b: hash)
+		sb.append(String.format("%02x", b));
+	    return new File(dir, sb + extension);
+	}
+	catch(GeneralSecurityException | UnsupportedEncodingException ex)
+	{
+	    throw new IllegalStateException(ex);
+	}
+    }
+
+    /** Verzeichnis der Dateien. */
+    private final File dir;
+
+    /** Hoechstgroesse aller Dateien zusammen. */
+    private final long maxBytes;
+
+    /** Anzahl Treffer. */
+    private long hits;
+
+    /** Anzahl Fehlschlaege. */
+    private long misses;
+}
@@ -0,0 +1,180 @@
+/** Berechnet die Eckpunkte einer Spirolateralkurve ohne zu zeichnen.
+  * Die Klasse braucht weder AWT noch einen Bildschirm.
+  *
+  * <p>Die Kurve entsteht wie in Spirolateralkurven: Die Turtle startet im
+  * Ursprung mit Blick nach rechts, geht Strecken der Laenge 1, 2, ...,
+  * repetitions mal unit und dreht sich nach jeder Strecke um angle Grad.
+  * Das wird so oft wiederholt, bis sich die Turtle insgesamt um ein
+  * Vielfaches von 360 Grad gedreht hat.
+  *
+  * <p>Das Array fuer die Eckpunkte wird wiederverwendet und waechst nur bei Bedarf.
+  * Da die Richtung immer ein ganzer Winkel ist, kommen Sinus und Cosinus
+  * aus einer Tabelle.
+  */
+public class Spirolateral
+{
+    /** Berechnet die Eckpunkte einer Kurve.
+      * @param unit Laenge der kuerzesten Strecke.
+      * @param angle Drehwinkel in Grad, positiv = gegen den Uhrzeigersinn.
+      * @param repetitions Anzahl Strecken pro Durchgang.
+      * @return Anzahl Eckpunkte, einschliesslich des Startpunktes.
+      * @throws IllegalArgumentException wenn repetitions < 1 ist oder die
+      * Eckpunkte nicht in ein Array passen.
+      */
+    public int compute(double unit, int angle, int repetitions)
+    {
+	if(repetitions < 1)
+	    throw new IllegalArgumentException("Mindestens eine Strecke pro Durchgang, nicht " + repetitions);
+	long points = (long)blocks(angle, repetitions)*repetitions + 1;
+	if(2*points > Integer.MAX_VALUE - 8)
+	    throw new IllegalArgumentException("Zu viele Eckpunkte: " + points);
+	int n = (int)points;
+	if(vertices.length < 2*n)
+	    vertices = new double[2*n];
+	double x = 0;
+	double y = 0;
+	int direction = 0;
+	int turn = Math.floorMod(angle, 360);
+	double minx = 0;
+	double miny = 0;
+	double maxx = 0;
+	double maxy = 0;
+	vertices[0] = 0;
+	vertices[1] = 0;
+	for(int k = 1; k < n; k++)
+	{
+	    double d = ((k - 1)%repetitions + 1)*unit;
+	    x += d*COS[direction];
+	    y += d*SIN[direction];
+	    direction += turn;
+	    if(direction >= 360)
+		direction -= 360;
+	    vertices[2*k] = x;
+	    vertices[2*k + 1] = y;
+	    minx = Math.min(minx, x);
+	    miny = Math.min(miny, y);
+	    maxx = Math.max(maxx, x);
+	    maxy = Math.max(maxy, y);
+	}
+	count = n;
+	minX = minx;
+	minY = miny;
+	maxX = maxx;
+	maxY = maxy;
+	return n;
+    }
+
+    /** Liefert die Anzahl Durchgaenge, bis sich die Kurve schliesst.
+      * @param angle Drehwinkel in Grad.
+      * @param repetitions Anzahl Strecken pro Durchgang.
+      * @return Anzahl Durchgaenge von 1 bis 360.
+      */
+    public static int blocks(int angle, int repetitions)
+    {
+	return 360/gcd((int)(Math.abs((long)angle*repetitions)%360), 360);
+    }
+
+    private static int gcd(int a, int b)
+    {
+	while(b != 0)
+	{
+	    int t = a%b;
+	    a = b;
+	    b = t;
+	}
+	return a;
+    }
+
+    /** Liefert die Eckpunkte der zuletzt berechneten Kurve.
+      * Das Array kann laenger sein als noetig und wird beim naechsten
+      * Aufruf von {@link #compute} ueberschrieben.
+      * @return Paarweise horizontale und vertikale Koordinaten.
+      */
+    public double[] vertices()
+    {
+	return vertices;
+    }
+
+    /** Liefert die Anzahl Eckpunkte der zuletzt berechneten Kurve.
+      * @return Anzahl Eckpunkte.
+      */
+    public int count()
+    {
+	return count;
+    }
+
+    /** Liefert die Boundingbox der zuletzt berechneten Kurve.
+      * @return Kleinste horizontale Koordinate.
+      */
+    public double minX()
+    {
+	return minX;
+    }
+
+    /** Liefert die Boundingbox der zuletzt berechneten Kurve.
+      * @return Kleinste vertikale Koordinate.
+      */
+    public double minY()
+    {
+	return minY;
+    }
+
+    /** Liefert die Boundingbox der zuletzt berechneten Kurve.
+      * @return Groesste horizontale Koordinate.
+      */
+    public double maxX()
+    {
+	return maxX;
+    }
+
+    /** Liefert die Boundingbox der zuletzt berechneten Kurve.
+      * @return Groesste vertikale Koordinate.
+      */
+    public double maxY()
+    {
+	return maxY;
+    }
+
+    /** Gibt Anzahl Eckpunkte und Boundingbox einer Kurve aus.
+      * Aufruf: <code>java Spirolateral unit angle repetitions</code>
+      */
+    public static void main(String... args)
+    {
+	Spirolateral s = new Spirolateral();
+	int n = s.compute(Double.parseDouble(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+	System.out.printf("%d %f %f %f %f%n", n, s.minX(), s.minY(), s.maxX(), s.maxY());
+    }
+
+    /** Cosinus der ganzen Winkel von 0 bis 359 Grad. */
+    private static final double[] COS = new double[360];
+
+    /** Sinus der ganzen Winkel von 0 bis 359 Grad. */
+    private static final double[] SIN = new double[360];
+
+    static
+    {
+	for(int i = 0; i < 360; i++)
+	{
+	    COS[i] = Math.cos(Math.toRadians(i));
+	    SIN[i] = Math.sin(Math.toRadians(i));
+	}
+    }
+
+    /** Eckpunkte, paarweise x und y. */
+    private double[] vertices = new double[0];
+
+    /** Anzahl gueltiger Eckpunkte. */
+    private int count;
+
+    /** Boundingbox. */
+    private double minX;
+
+    /** Boundingbox. */
+    private double minY;
+
+    /** Boundingbox. */
+    private double maxX;
+
+    /** Boundingbox. */
+    private double maxY;
+}
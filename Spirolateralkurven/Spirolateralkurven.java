@@ -1,27 +1,58 @@
 
+import java.io.*;
 import java.util.*;
 
 public class Spirolateralkurven {
-	public static void main(String args[]) {
+	public static void main(String args[]) throws IOException {
 	final int pixelWidth 		= Integer.parseInt(args[0]);	
 	final int pixelHeight 		= Integer.parseInt(args[1]);
 	final int edgeLength 		= Integer.parseInt(args[2]);
 	final int angle 		= Integer.parseInt(args[3]);
 	int repetitions			= Integer.parseInt(args[4]);	
-	int checkAngle 			= 0;
-	TurtlePainter turtle 		= new TurtlePainter(pixelWidth, pixelHeight, edgeLength);
+	final String mode 		= args.length > 5 ? args[5] : "";
+	if(repetitions < 1)
+		throw new IllegalArgumentException("Mindestens eine Strecke pro Durchgang, nicht " + repetitions);
+	final String hidden 		= System.getProperty("painter.hidden");
+	final String cacheDir 		= System.getProperty("spiro.cache");
+	SpiroCache cache 		= null;
+	String key 			= null;
 
-	do{	
-		for (int i = 1; i<=repetitions; i++){
-			turtle.colors(repetitions);
-			turtle.color(i-1);	
-			turtle.move(i);
-			turtle.turn(angle);
-			checkAngle = checkAngle + angle;
-		}
-	
-	} while(checkAngle%360 != 0);
+	// Gleichwertige Figuren nur einmal zeichnen
+	if(cacheDir != null && hidden != null && (mode.isEmpty() || mode.equals("density"))){
+		cache = new SpiroCache(new File(cacheDir), Long.getLong("spiro.cache.mb", 256) << 20);
+		key = SpiroCache.key(angle, repetitions, edgeLength, pixelWidth, pixelHeight, mode);
+		if(cache.getImage(key, SpiroCache.mirrored(angle), new File(hidden)))
+			return;
+	}
+	final int drawAngle 		= cache != null ? SpiroCache.canonicalAngle(angle) : angle;
+
+	TurtlePainter turtle 		= new TurtlePainter(pixelWidth, pixelHeight, edgeLength > 0 ? edgeLength : 10);
+	if(mode.equals("density"))
+		turtle.density(true);
+	if(mode.endsWith(".svg"))
+		turtle.svg(mode, false);
+	if(mode.endsWith(".gif") || mode.contains("%"))
+		turtle.animate(mode, 40, repetitions);
+
+	Spirolateral curve 		= new Spirolateral();
+	int vertices 			= curve.compute(1, drawAngle, repetitions);
+	double[] xy 			= curve.vertices();
+	if(edgeLength <= 0)
+		turtle.fit(curve.minX(), curve.minY(), curve.maxX(), curve.maxY(), 0.05);
+
+	turtle.colors(repetitions);
+	for (int k = 1; k < vertices; k++){
+		turtle.color((k-1)%repetitions);
+		turtle.moveTo(xy[2*k], xy[2*k+1]);
+	}
+	turtle.svgClose();
+	turtle.animateClose();
 	turtle.repaint();
+	if(cache != null){
+		cache.putImage(key, new File(hidden));
+		if(SpiroCache.mirrored(angle))
+			cache.getImage(key, true, new File(hidden));
+	}
 	
 	}
 }
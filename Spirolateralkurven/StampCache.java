@@ -0,0 +1,184 @@
+import java.util.*;
+import java.awt.*;
+import java.awt.image.*;
+
+/** Zwischenspeicher fuer vorgezeichnete Kreise, Ellipsen und Boegen.
+  * Zu Form, Groesse, Linienbreite und Farbe wird die Form einmal
+  * kantengeglaettet in ein kleines, sonst durchsichtiges Bild gezeichnet.
+  * Jedes weitere Mal wird nur noch dieses Bild aufgestempelt.
+  * Werden mehr Stempel gespeichert als die Kapazitaet erlaubt, fliegt der
+  * am laengsten nicht benutzte heraus.
+  */
+public class StampCache
+{
+    /** Legt einen leeren Zwischenspeicher an.
+      * @param capacity Hoechstzahl gespeicherter Stempel.
+      */
+    public StampCache(int capacity)
+    {
+	this.capacity = capacity;
+	entries = new LinkedHashMap<Key, Stamp>(16, 0.75f, true)
+	{
+	    protected boolean removeEldestEntry(Map.Entry<Key, Stamp> eldest)
+	    {
+		return size() > StampCache.this.capacity;
+	    }
+	};
+    }
+
+    /** Liefert den Stempel einer Ellipse oder eines Bogens.
+      * Die Parameter sind Pixelgroessen wie bei Graphics.drawArc.
+      * @param w Breite.
+      * @param h Hoehe.
+      * @param start Winkel in Grad, an dem der Bogen beginnt.
+      * @param arc Anzahl Grad, 360 fuer eine ganze Ellipse.
+      * @param fill true = gefuellt.
+      * @param stroke Linie, mit der gezeichnet wird.
+      * @param argb Farbe 0xAARRGGBB.
+      * @param antialias true = Kanten glaetten.
+      * @return Stempel, null wenn die Form zu gross fuer einen Stempel ist.
+      */
+    public Stamp get(int w, int h, int start, int arc, boolean fill, BasicStroke stroke, int argb, boolean antialias)
+    {
+	float lw = fill?  0:  stroke.getLineWidth();
+	int m = (int)Math.ceil(lw/2) + 1;
+	if(w < 0  ||  h < 0  ||  w + 2*m > MAX_EDGE  ||  h + 2*m > MAX_EDGE)
+	    return null;
+	Key key = new Key(w, h, start, arc, fill, lw, argb, antialias);
+	Stamp s = entries.get(key);
+	if(s != null)
+	{
+	    hits++;
+	    return s;
+	}
+	misses++;
+	BufferedImage image = new BufferedImage(w + 2*m + 1, h + 2*m + 1, BufferedImage.TYPE_INT_ARGB);
+	Graphics2D g = image.createGraphics();
+	g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialias?  RenderingHints.VALUE_ANTIALIAS_ON:  RenderingHints.VALUE_ANTIALIAS_OFF);
+	g.setStroke(stroke);
+	g.setColor(new Color(argb, true));
+	if(start == 0  &&  arc == 360)
+	{
+	    if(fill)
+		g.fillOval(m, m, w, h);
+	    else
+		g.drawOval(m, m, w, h);
+	}
+	else if(fill)
+	    g.fillArc(m, m, w, h, start, arc);
+	else
+	    g.drawArc(m, m, w, h, start, arc);
+	g.dispose();
+	s = new Stamp(image, m);
+	entries.put(key, s);
+	return s;
+    }
+
+    /** Verwirft alle gespeicherten Stempel. */
+    public void clear()
+    {
+	entries.clear();
+    }
+
+    /** Liefert die Anzahl Abfragen, die aus dem Speicher bedient wurden.
+      * @return Treffer.
+      */
+    public long hits()
+    {
+	return hits;
+    }
+
+    /** Liefert die Anzahl Abfragen, fuer die ein Stempel neu gezeichnet wurde.
+      * @return Fehlschlaege.
+      */
+    public long misses()
+    {
+	return misses;
+    }
+
+    /** Ein vorgezeichneter Stempel. */
+    public static class Stamp
+    {
+	Stamp(BufferedImage i, int m)
+	{
+	    image = i;
+	    margin = m;
+	}
+
+	/** Das Bild, ausserhalb der Form durchsichtig. */
+	public final BufferedImage image;
+
+	/** Rand um die Form in Pixel; das Bild wird um so viel nach links oben versetzt. */
+	public final int margin;
+    }
+
+    /** Schluessel aus Form, Groesse, Linienbreite und Farbe. */
+    private static class Key
+    {
+	Key(int w, int h, int start, int arc, boolean fill, float lw, int argb, boolean antialias)
+	{
+	    this.w = w;
+	    this.h = h;
+	    this.start = start;
+	    this.arc = arc;
+	    this.fill = fill;
+	    this.lw = lw;
+	    this.argb = argb;
+	    this.antialias = antialias;
+	}
+
+	public boolean equals(Object o)
+	{
+	    if(!(o instanceof Key))
+		return false;
+	    Key k = (Key)o;
+	    return w == k.w  &&  h == k.h  &&  start == k.start  &&  arc == k.arc
+		&&  fill == k.fill  &&  lw == k.lw  &&  argb == k.argb  &&  antialias == k.antialias;
+	}
+
+	public int hashCode()
+	{
+	    int hash = w;
+	    hash = 31*hash + h;
+	    hash = 31*hash + start;
+	    hash = 31*hash + arc;
+	    hash = 31*hash + Float.floatToIntBits(lw);
+	    hash = 31*hash + argb;
+	    return 4*hash + (fill?  2:  0) + (antialias?  1:  0);
+	}
+
+	private final int w;
+
+	private final int h;
+
+	private final int start;
+
+	private final int arc;
+
+	private final boolean fill;
+
+	private final float lw;
+
+	private final int argb;
+
+	private final boolean antialias;
+    }
+
+    /** Groesste Kantenlaenge eines Stempels in Pixel.
+      * Groessere Formen werden direkt gezeichnet, weil sie selten wiederholt
+      * werden und viel Speicher kosten wuerden.
+      */
+    private static final int MAX_EDGE = 256;
+
+    /** Hoechstzahl gespeicherter Stempel. */
+    private final int capacity;
+
+    /** Die Stempel in der Reihenfolge ihrer letzten Benutzung. */
+    private final LinkedHashMap<Key, Stamp> entries;
+
+    /** Anzahl Treffer. */
+    private long hits;
+
+    /** Anzahl Fehlschlaege. */
+    private long misses;
+}
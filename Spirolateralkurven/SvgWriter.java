@@ -0,0 +1,346 @@
+import java.io.*;
+import java.awt.*;
+import java.nio.charset.StandardCharsets;
+
+/** Schreibt Zeichenoperationen als SVG-Vektorgrafik direkt in eine Datei.
+  * Es wird kein Pixelbild gebraucht, die Datei waechst nur mit der Anzahl
+  * der Operationen.
+  * Aufeinanderfolgende Linien gleicher Farbe und Breite, die dort beginnen,
+  * wo die vorige endet, werden zu einem einzigen Pfad zusammengefasst.
+  *
+  * <p>Alle Koordinaten sind Pixelkoordinaten mit dem Ursprung links oben.
+  * Schreibfehler werden gesammelt und erst von {@link #close} gemeldet.
+  */
+public class SvgWriter
+{
+    /** Legt die Datei an und schreibt den Kopf.
+      * @param filename Name der Datei.
+      * @param w Breite in Pixel.
+      * @param h Hoehe in Pixel.
+      */
+    public SvgWriter(String filename, int w, int h) throws IOException
+    {
+	file = new File(filename);
+	out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8), 1 << 16));
+	out.print("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+	out.print("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + w + "\" height=\"" + h
+		  + "\" viewBox=\"0 0 " + w + " " + h + "\" stroke-linecap=\"round\" stroke-linejoin=\"round\">\n");
+	width = w;
+	height = h;
+    }
+
+    /** Uebermalt die ganze Flaeche.
+      * @param argb Farbe 0xAARRGGBB.
+      */
+    public void clear(int argb)
+    {
+	rect(0, 0, width, height, argb, 0, true);
+    }
+
+    /** Zeichnet eine Linie. Schliesst sie an die vorige an, wenn moeglich.
+      * Linien mit nicht endlichen Koordinaten werden weggelassen.
+      * @param x0 Horizontale Koordinate des ersten Punktes.
+      * @param y0 Vertikale Koordinate des ersten Punktes.
+      * @param x1 Horizontale Koordinate des zweiten Punktes.
+      * @param y1 Vertikale Koordinate des zweiten Punktes.
+      * @param argb Farbe 0xAARRGGBB.
+      * @param w Linienbreite.
+      */
+    public void line(double x0, double y0, double x1, double y1, int argb, double w)
+    {
+	if(!Double.isFinite(x0 + y0 + x1 + y1))
+	    return;
+	x0 = round(x0);
+	y0 = round(y0);
+	x1 = round(x1);
+	y1 = round(y1);
+	if(!open  ||  argb != pathColor  ||  w != pathWidth  ||  x0 != pathX  ||  y0 != pathY)
+	{
+	    endPath();
+	    out.print("<path d=\"M");
+	    number(x0);
+	    out.print(' ');
+	    number(y0);
+	    open = true;
+	    pathColor = argb;
+	    pathWidth = w;
+	}
+	out.print(" L");
+	number(x1);
+	out.print(' ');
+	number(y1);
+	pathX = x1;
+	pathY = y1;
+    }
+
+    /** Zeichnet einen Bogen wie Graphics.drawArc oder fillArc.
+      * @param x Linke Kante des umschliessenden Rechtecks.
+      * @param y Obere Kante des umschliessenden Rechtecks.
+      * @param w Breite des umschliessenden Rechtecks.
+      * @param h Hoehe des umschliessenden Rechtecks.
+      * @param start Anfangswinkel in Grad, 0 = 3 Uhr, gegen den Uhrzeigersinn.
+      * @param arc Laenge des Bogens in Grad.
+      * @param argb Farbe 0xAARRGGBB.
+      * @param lw Linienbreite.
+      * @param fill true = als Tortenstueck fuellen.
+      */
+    public void arc(int x, int y, int w, int h, int start, int arc, int argb, double lw, boolean fill)
+    {
+	if(Math.abs(arc) >= 360)
+	{
+	    oval(x, y, w, h, argb, lw, fill);
+	    return;
+	}
+	endPath();
+	double rx = w/2.0;
+	double ry = h/2.0;
+	double cx = x + rx;
+	double cy = y + ry;
+	double a0 = Math.toRadians(start);
+	double a1 = Math.toRadians(start + arc);
+	out.print("<path d=\"");
+	if(fill)
+	{
+	    out.print('M');
+	    number(cx);
+	    out.print(' ');
+	    number(cy);
+	    out.print(" L");
+	}
+	else
+	    out.print('M');
+	number(cx + rx*Math.cos(a0));
+	out.print(' ');
+	number(cy - ry*Math.sin(a0));
+	out.print(" A");
+	number(rx);
+	out.print(' ');
+	number(ry);
+	out.print(" 0 " + (Math.abs(arc) > 180?  1:  0) + " " + (arc > 0?  0:  1) + " ");
+	number(cx + rx*Math.cos(a1));
+	out.print(' ');
+	number(cy - ry*Math.sin(a1));
+	out.print(fill?  " Z\"":  "\"");
+	paint(argb, lw, fill);
+    }
+
+    /** Zeichnet eine Ellipse wie Graphics.drawOval oder fillOval.
+      * @param x Linke Kante des umschliessenden Rechtecks.
+      * @param y Obere Kante des umschliessenden Rechtecks.
+      * @param w Breite des umschliessenden Rechtecks.
+      * @param h Hoehe des umschliessenden Rechtecks.
+      * @param argb Farbe 0xAARRGGBB.
+      * @param lw Linienbreite.
+      * @param fill true = fuellen.
+      */
+    public void oval(int x, int y, int w, int h, int argb, double lw, boolean fill)
+    {
+	endPath();
+	out.print("<ellipse cx=\"");
+	number(x + w/2.0);
+	out.print("\" cy=\"");
+	number(y + h/2.0);
+	out.print("\" rx=\"");
+	number(w/2.0);
+	out.print("\" ry=\"");
+	number(h/2.0);
+	out.print('"');
+	paint(argb, lw, fill);
+    }
+
+    /** Zeichnet ein Rechteck wie Graphics.drawRect oder fillRect.
+      * @param x Linke Kante.
+      * @param y Obere Kante.
+      * @param w Breite.
+      * @param h Hoehe.
+      * @param argb Farbe 0xAARRGGBB.
+      * @param lw Linienbreite.
+      * @param fill true = fuellen.
+      */
+    public void rect(int x, int y, int w, int h, int argb, double lw, boolean fill)
+    {
+	endPath();
+	out.print("<rect x=\"" + x + "\" y=\"" + y + "\" width=\"" + w + "\" height=\"" + h + "\"");
+	paint(argb, lw, fill);
+    }
+
+    /** Zeichnet einen Polygonzug oder ein gefuelltes Polygon.
+      * @param xs Horizontale Koordinaten.
+      * @param ys Vertikale Koordinaten.
+      * @param n Anzahl Punkte.
+      * @param argb Farbe 0xAARRGGBB.
+      * @param lw Linienbreite.
+      * @param fill true = als geschlossenes Polygon fuellen.
+      */
+    public void poly(int[] xs, int[] ys, int n, int argb, double lw, boolean fill)
+    {
+	endPath();
+	out.print(fill?  "<polygon points=\"":  "<polyline points=\"");
+	for(int i = 0; i < n; i++)
+	{
+	    if(i > 0)
+		out.print(' ');
+	    out.print(xs[i]);
+	    out.print(',');
+	    out.print(ys[i]);
+	}
+	out.print('"');
+	paint(argb, lw, fill);
+    }
+
+    /** Schreibt einen Text.
+      * @param x Horizontale Koordinate des Anfangs der Grundlinie.
+      * @param y Vertikale Koordinate der Grundlinie.
+      * @param s Text.
+      * @param font Font.
+      * @param argb Farbe 0xAARRGGBB.
+      */
+    public void text(double x, double y, String s, Font font, int argb)
+    {
+	endPath();
+	out.print("<text x=\"");
+	number(round(x));
+	out.print("\" y=\"");
+	number(round(y));
+	out.print("\" font-family=\"" + escape(font.getFamily()) + "\" font-size=\"");
+	number(round(font.getSize2D()));
+	out.print('"');
+	if(font.isBold())
+	    out.print(" font-weight=\"bold\"");
+	if(font.isItalic())
+	    out.print(" font-style=\"italic\"");
+	out.print(" fill=\"");
+	color(argb);
+	out.print('"');
+	opacity(" fill-opacity", argb);
+	out.print('>');
+	out.print(escape(s));
+	out.print("</text>\n");
+    }
+
+    /** Schliesst die Datei ab.
+      * @throws IOException wenn beim Schreiben irgendwann ein Fehler aufgetreten ist.
+      */
+    public void close() throws IOException
+    {
+	endPath();
+	out.print("</svg>\n");
+	out.close();
+	if(out.checkError())
+	    throw new IOException("Fehler beim Schreiben der SVG-Datei");
+    }
+
+    /** Liefert die Groesse der Datei.
+      * @return Bisher geschriebene Bytes, nach {@link #close} die ganze Datei.
+      */
+    public long length()
+    {
+	return file.length();
+    }
+
+    /** Beendet einen offenen Pfad aus Linien. */
+    private void endPath()
+    {
+	if(!open)
+	    return;
+	out.print('"');
+	paint(pathColor, pathWidth, false);
+	open = false;
+    }
+
+    /** Schreibt die Farbattribute und schliesst das Element. */
+    private void paint(int argb, double lw, boolean fill)
+    {
+	if(fill)
+	{
+	    out.print(" fill=\"");
+	    color(argb);
+	    out.print('"');
+	    opacity(" fill-opacity", argb);
+	}
+	else
+	{
+	    out.print(" fill=\"none\" stroke=\"");
+	    color(argb);
+	    out.print("\" stroke-width=\"");
+	    number(round(lw));
+	    out.print('"');
+	    opacity(" stroke-opacity", argb);
+	}
+	out.print("/>\n");
+    }
+
+    private void color(int argb)
+    {
+	out.print('#');
+	for(int shift = 20; shift >= 0; shift -= 4)
+	    out.print(HEX[(argb >> shift) & 0xF]);
+    }
+
+    private void opacity(String attribute, int argb)
+    {
+	int a = argb >>> 24;
+	if(a == 255)
+	    return;
+	out.print(attribute + "=\"");
+	number(round(a/255.0));
+	out.print('"');
+    }
+
+    /** Schreibt eine Zahl ohne ueberfluessige Nachkommastellen.
+      * NaN wird 0, alles andere wird auf +-{@link #LIMIT} begrenzt,
+      * denn NaN und Infinity sind in SVG keine Zahlen.
+      */
+    private void number(double v)
+    {
+	v = v > -LIMIT?  Math.min(v, LIMIT):  (v <= -LIMIT?  -LIMIT:  0);
+	long l = (long)v;
+	if(l == v)
+	    out.print(l);
+	else
+	    out.print(v);
+    }
+
+    /** Rundet auf 2 Nachkommastellen, das reicht fuer Pixel. */
+    private static double round(double v)
+    {
+	return Math.round(v*100)/100.0;
+    }
+
+    private static String escape(String s)
+    {
+	return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /** Groesster geschriebener Betrag, weit jenseits jeder Zeichenflaeche. */
+    private static final double LIMIT = 1e9;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /** Die Datei. */
+    private final File file;
+
+    /** Die gepufferte Ausgabe. */
+    private final PrintWriter out;
+
+    /** Breite in Pixel. */
+    private final int width;
+
+    /** Hoehe in Pixel. */
+    private final int height;
+
+    /** true, solange ein Pfad aus Linien offen ist. */
+    private boolean open;
+
+    /** Farbe des offenen Pfades. */
+    private int pathColor;
+
+    /** Linienbreite des offenen Pfades. */
+    private double pathWidth;
+
+    /** Letzter Punkt des offenen Pfades. */
+    private double pathX;
+
+    /** Letzter Punkt des offenen Pfades. */
+    private double pathY;
+}
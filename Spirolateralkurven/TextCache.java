@@ -0,0 +1,170 @@
+import java.util.*;
+import java.text.*;
+import java.awt.*;
+import java.awt.font.*;
+import java.awt.geom.*;
+
+/** Zwischenspeicher fuer gesetzte Texte.
+  * Zu Font, Umgebung und Text werden die Glyphen und die Boundingbox einmal
+  * berechnet und beim naechsten Mal wiederverwendet.
+  * Die Texte werden vollstaendig gesetzt, also auch mit Ligaturen und
+  * zusammengesetzten Zeichen, und von rechts nach links laufende Schrift
+  * wie Arabisch oder Hebraeisch wird richtig herum ausgegeben.
+  * Werden mehr Texte gespeichert als die Kapazitaet erlaubt, fliegt der
+  * am laengsten nicht benutzte heraus.
+  */
+public class TextCache
+{
+    /** Legt einen leeren Zwischenspeicher an.
+      * @param capacity Hoechstzahl gespeicherter Texte.
+      */
+    public TextCache(int capacity)
+    {
+	this.capacity = capacity;
+	entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true)
+	{
+	    protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest)
+	    {
+		return size() > TextCache.this.capacity;
+	    }
+	};
+    }
+
+    /** Liefert die Glyphen und die Boundingbox eines Textes.
+      * @param font Font.
+      * @param frc Umgebung, in der der Text gesetzt wird, mit Transformation
+      * und Kantenglaettung.
+      * @param s Text.
+      * @return Gesetzter Text.
+      */
+    public Entry get(Font font, FontRenderContext frc, String s)
+    {
+	Key key = new Key(font, frc, s);
+	Entry e = entries.get(key);
+	if(e != null)
+	{
+	    hits++;
+	    return e;
+	}
+	misses++;
+	e = new Entry(font, frc, s);
+	entries.put(key, e);
+	return e;
+    }
+
+    /** Verwirft alle gespeicherten Texte. */
+    public void clear()
+    {
+	entries.clear();
+    }
+
+    /** Liefert die Anzahl Abfragen, die aus dem Speicher bedient wurden.
+      * @return Treffer.
+      */
+    public long hits()
+    {
+	return hits;
+    }
+
+    /** Liefert die Anzahl Abfragen, fuer die ein Text neu gesetzt wurde.
+      * @return Fehlschlaege.
+      */
+    public long misses()
+    {
+	return misses;
+    }
+
+    /** Ein gesetzter Text. */
+    public static class Entry
+    {
+	/** Setzt einen Text.
+	  * Text mit nur einer Schreibrichtung wird zu einem GlyphVector gesetzt,
+	  * Text mit gemischter Schreibrichtung zu einem TextLayout, das die
+	  * Abschnitte in die richtige Reihenfolge bringt.
+	  */
+	Entry(Font font, FontRenderContext frc, String s)
+	{
+	    char[] chars = s.toCharArray();
+	    int flags = Font.LAYOUT_LEFT_TO_RIGHT;
+	    TextLayout mixed = null;
+	    if(Bidi.requiresBidi(chars, 0, chars.length))
+	    {
+		Bidi bidi = new Bidi(s, Bidi.DIRECTION_DEFAULT_LEFT_TO_RIGHT);
+		if(bidi.isMixed())
+		    mixed = new TextLayout(s, font, frc);
+		else if(bidi.isRightToLeft())
+		    flags = Font.LAYOUT_RIGHT_TO_LEFT;
+	    }
+	    layout = mixed;
+	    glyphs = mixed == null?  font.layoutGlyphVector(frc, chars, 0, chars.length, flags):  null;
+	    bounds = font.getStringBounds(s, frc);
+	}
+
+	/** Zeichnet den Text.
+	  * @param g Graphicskontext mit der Umgebung, zu der der Text gesetzt wurde.
+	  * @param x Horizontale Pixelkoordinate des Textanfangs.
+	  * @param y Vertikale Pixelkoordinate der Grundlinie.
+	  */
+	public void draw(Graphics2D g, float x, float y)
+	{
+	    if(glyphs != null)
+		g.drawGlyphVector(glyphs, x, y);
+	    else
+		layout.draw(g, x, y);
+	}
+
+	/** Die Glyphen, null bei gemischter Schreibrichtung. */
+	public final GlyphVector glyphs;
+
+	/** Der gesetzte Text bei gemischter Schreibrichtung, sonst null. */
+	private final TextLayout layout;
+
+	/** Die logische Boundingbox, wie Font.getStringBounds sie liefert. */
+	public final Rectangle2D bounds;
+    }
+
+    /** Schluessel aus Font, Umgebung und Text.
+      * FontRenderContext vergleicht Transformation, Kantenglaettung und
+      * gebrochene Zeichenbreiten.
+      */
+    private static class Key
+    {
+	Key(Font f, FontRenderContext c, String s)
+	{
+	    font = f;
+	    frc = c;
+	    text = s;
+	}
+
+	public boolean equals(Object o)
+	{
+	    if(!(o instanceof Key))
+		return false;
+	    Key k = (Key)o;
+	    return font.equals(k.font)  &&  frc.equals(k.frc)  &&  text.equals(k.text);
+	}
+
+	public int hashCode()
+	{
+	    return 31*(31*font.hashCode() + frc.hashCode()) + text.hashCode();
+	}
+
+	private final Font font;
+
+	private final FontRenderContext frc;
+
+	private final String text;
+    }
+
+    /** Hoechstzahl gespeicherter Texte. */
+    private final int capacity;
+
+    /** Die Texte in der Reihenfolge ihrer letzten Benutzung. */
+    private final LinkedHashMap<Key, Entry> entries;
+
+    /** Anzahl Treffer. */
+    private long hits;
+
+    /** Anzahl Fehlschlaege. */
+    private long misses;
+}
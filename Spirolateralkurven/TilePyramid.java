@@ -0,0 +1,356 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.awt.*;
+
+/** Zerlegt eine grosse Zeichnung in eine Kachelpyramide zum Zoomen im Browser.
+  * Die Kacheln liegen wie bei Karten im XYZ-Schema in Dateien z/x/y.png:
+  * Stufe z hat 2^z mal 2^z Kacheln, x zaehlt von links, y von oben.
+  * Stufe 0 zeigt die ganze Zeichnung in einer Kachel.
+  *
+  * <p>Die Zeichnung wird als Liste von Strichen festgehalten, etwa der
+  * {@link SegmentBuffer} einer {@link Turtle}. Jede Kachel wird direkt aus
+  * dieser Liste gemalt, es entsteht nie ein Gesamtbild. Ein Quadtree ueber
+  * die Striche liefert jeder Kachel nur die Striche, die sie beruehren.
+  * Kacheln ohne Striche werden nicht geschrieben, und unter einer leeren
+  * Kachel wird auch auf den feineren Stufen nicht mehr gesucht.
+  *
+  * <p>Die Kacheln einer Stufe werden parallel gemalt. Jede gerade malende
+  * Kachel leiht sich eine Zeichenflaeche in Kachelgroesse, mehr Pixel sind nie
+  * im Speicher. Die Flaechen gehoeren zu einem Aufruf von write() und werden
+  * danach frei; painter.hidden beachten sie nicht.
+  */
+public class TilePyramid
+{
+    /** Baut den Index ueber eine Zeichnung mit Kacheln zu 256 Pixeln.
+      * @param segments Die Striche. Sie duerfen sich danach nicht mehr aendern.
+      */
+    public TilePyramid(SegmentBuffer segments)
+    {
+	this(segments, 256);
+    }
+
+    /** Baut den Index ueber eine Zeichnung.
+      * @param segments Die Striche. Sie duerfen sich danach nicht mehr aendern.
+      * @param tileSize Kantenlaenge einer Kachel in Pixel.
+      */
+    public TilePyramid(SegmentBuffer segments, int tileSize)
+    {
+	this.segments = segments;
+	this.tileSize = tileSize;
+	int n = segments.size();
+	double[] xy = segments.coords();
+	box = new double[4*n];
+	double minx = Double.POSITIVE_INFINITY;
+	double miny = Double.POSITIVE_INFINITY;
+	double maxx = Double.NEGATIVE_INFINITY;
+	double maxy = Double.NEGATIVE_INFINITY;
+	double w = 0;
+	for(int i = 0; i < n; i++)
+	{
+	    box[4*i] = Math.min(xy[4*i], xy[4*i + 2]);
+	    box[4*i + 1] = Math.min(xy[4*i + 1], xy[4*i + 3]);
+	    box[4*i + 2] = Math.max(xy[4*i], xy[4*i + 2]);
+	    box[4*i + 3] = Math.max(xy[4*i + 1], xy[4*i + 3]);
+	    minx = Math.min(minx, box[4*i]);
+	    miny = Math.min(miny, box[4*i + 1]);
+	    maxx = Math.max(maxx, box[4*i + 2]);
+	    maxy = Math.max(maxy, box[4*i + 3]);
+	    w = Math.max(w, segments.widths()[i]);
+	}
+	maxWidth = w;
+	if(n == 0)
+	{
+	    minx = miny = 0;
+	    maxx = maxy = 1;
+	}
+	// quadratische Welt mit etwas Rand, damit Linienenden nicht abgeschnitten werden
+	double size = Math.max(Math.max(maxx - minx, maxy - miny), 1e-9)*(1 + 2*MARGIN);
+	worldX = (minx + maxx - size)/2;
+	worldY = (miny + maxy - size)/2;
+	worldSize = size;
+	root = new Node(worldX, worldY, worldSize);
+	for(int i = 0; i < n; i++)
+	    root.insert(i, box, 0);
+    }
+
+    /** Schreibt alle Kacheln der Stufen 0 bis maxZoom.
+      * Die Kacheln sind ausserhalb der Striche durchsichtig.
+      * @param dir Verzeichnis, in dem die Unterverzeichnisse z/x angelegt werden.
+      * @param maxZoom Feinste Stufe.
+      * @return Anzahl geschriebener Kacheln.
+      * @throws IOException wenn eine Kachel nicht geschrieben werden kann.
+      */
+    public long write(File dir, int maxZoom) throws IOException
+    {
+	AtomicLong written = new AtomicLong();
+	// freie Zeichenflaechen, nie mehr als Kacheln gleichzeitig gemalt werden
+	Queue<Worker> idle = new ConcurrentLinkedQueue<Worker>();
+	// Kacheln mit Strichen, je x << 32 | y
+	long[] level = {0L};
+	for(int z = 0; z <= maxZoom  &&  level.length > 0; z++)
+	{
+	    int zoom = z;
+	    try
+	    {
+		level = Arrays.stream(level).parallel()
+		    .filter(tile -> tile(idle, dir, zoom, (int)(tile >>> 32), (int)tile, written))
+		    .flatMap(tile -> children(tile))
+		    .toArray();
+	    }
+	    catch(UncheckedIOException ex)
+	    {
+		throw ex.getCause();
+	    }
+	}
+	return written.get();
+    }
+
+    /** Malt eine Kachel mit einer geliehenen Zeichenflaeche.
+      * @return true, wenn die Kachel Striche hat.
+      */
+    private boolean tile(Queue<Worker> idle, File dir, int z, int x, int y, AtomicLong written)
+    {
+	Worker w = idle.poll();
+	if(w == null)
+	    w = new Worker();
+	try
+	{
+	    return w.tile(dir, z, x, y, written);
+	}
+	finally
+	{
+	    idle.add(w);
+	}
+    }
+
+    /** Prueft, ob eine Strecke ein Rechteck schneidet.
+      * Die Boundingboxen beruehren sich schon; eine schraege Strecke kann aber
+      * trotzdem am Rechteck vorbeigehen. Die Strecke wird dazu wie bei
+      * Liang-Barsky nacheinander an den vier Kanten abgeschnitten.
+      */
+    private static boolean crosses(double x0, double y0, double x1, double y1,
+				   double minx, double miny, double maxx, double maxy)
+    {
+	double dx = x1 - x0;
+	double dy = y1 - y0;
+	double[] p = {-dx, dx, -dy, dy};
+	double[] q = {x0 - minx, maxx - x0, y0 - miny, maxy - y0};
+	double t0 = 0;
+	double t1 = 1;
+	for(int k = 0; k < 4; k++)
+	{
+	    if(p[k] == 0)
+	    {
+		if(q[k] < 0)
+		    return false;
+	    }
+	    else
+	    {
+		double t = q[k]/p[k];
+		if(p[k] < 0)
+		    t0 = Math.max(t0, t);
+		else
+		    t1 = Math.min(t1, t);
+		if(t0 > t1)
+		    return false;
+	    }
+	}
+	return true;
+    }
+
+    /** Liefert die vier Kacheln der naechsten Stufe unter einer Kachel. */
+    private static java.util.stream.LongStream children(long tile)
+    {
+	long x = 2*(tile >>> 32);
+	long y = 2*(tile & 0xFFFFFFFFL);
+	return java.util.stream.LongStream.of(x << 32 | y, x << 32 | y + 1, x + 1 << 32 | y, x + 1 << 32 | y + 1);
+    }
+
+    /** Zeichenflaeche und Puffer fuer eine Kachel nach der anderen. */
+    private class Worker
+    {
+	/** Malt eine Kachel und schreibt sie, wenn sie Striche hat.
+	  * @return true, wenn die Kachel Striche hat.
+	  */
+	boolean tile(File dir, int z, int x, int y, AtomicLong written)
+	{
+	    double size = worldSize/(1 << z);
+	    double minx = worldX + x*size;
+	    double maxy = worldY + worldSize - y*size;
+	    double pixel = size/tileSize;
+	    double m = maxWidth/2 + 2*pixel;
+	    count = 0;
+	    root.collect(minx - m, maxy - size - m, minx + size + m, maxy + m, box, this);
+	    Arrays.sort(hits, 0, count);
+	    selected.clear();
+	    double[] xy = segments.coords();
+	    int[] colors = segments.colors();
+	    double[] widths = segments.widths();
+	    for(int k = 0; k < count; k++)
+	    {
+		int i = hits[k];
+		if(crosses(xy[4*i], xy[4*i + 1], xy[4*i + 2], xy[4*i + 3], minx - m, maxy - size - m, minx + size + m, maxy + m))
+		    selected.add(xy[4*i], xy[4*i + 1], xy[4*i + 2], xy[4*i + 3], colors[i], widths[i]);
+	    }
+	    if(selected.size() == 0)
+		return false;
+	    painter.clear(TRANSPARENT);
+	    painter.fit(minx, maxy - size, minx + size, maxy, 0);
+	    painter.segments(selected);
+	    File f = new File(dir, z + File.separator + x + File.separator + y + ".png");
+	    f.getParentFile().mkdirs();
+	    try
+	    {
+		painter.save(f.getPath());
+	    }
+	    catch(IOException ex)
+	    {
+		throw new UncheckedIOException(ex);
+	    }
+	    written.incrementAndGet();
+	    return true;
+	}
+
+	/** Merkt sich einen gefundenen Strich. */
+	void add(int i)
+	{
+	    if(count == hits.length)
+		hits = Arrays.copyOf(hits, 2*count);
+	    hits[count++] = i;
+	}
+
+	/** Zeichenflaeche in Kachelgroesse. */
+	private final Painter painter = Painter.offscreen(tileSize, tileSize, 1);
+
+	/** Die Striche der aktuellen Kachel in Zeichenreihenfolge. */
+	private final SegmentBuffer selected = new SegmentBuffer();
+
+	/** Nummern der gefundenen Striche. */
+	private int[] hits = new int[256];
+
+	/** Anzahl gefundener Striche. */
+	private int count;
+    }
+
+    /** Ein Knoten des Quadtrees.
+      * Ein Strich haengt am kleinsten Knoten, dessen Quadrat ihn ganz enthaelt.
+      */
+    private static class Node
+    {
+	Node(double x, double y, double s)
+	{
+	    this.x = x;
+	    this.y = y;
+	    size = s;
+	}
+
+	void insert(int i, double[] box, int depth)
+	{
+	    if(depth < MAX_DEPTH)
+	    {
+		double h = size/2;
+		int qx = box[4*i] >= x + h?  1:  (box[4*i + 2] <= x + h?  0:  -1);
+		int qy = box[4*i + 1] >= y + h?  1:  (box[4*i + 3] <= y + h?  0:  -1);
+		if(qx >= 0  &&  qy >= 0)
+		{
+		    if(kids == null)
+			kids = new Node[4];
+		    int q = 2*qy + qx;
+		    if(kids[q] == null)
+			kids[q] = new Node(x + qx*h, y + qy*h, h);
+		    kids[q].insert(i, box, depth + 1);
+		    return;
+		}
+	    }
+	    if(count == items.length)
+		items = Arrays.copyOf(items, 2*count + 1);
+	    items[count++] = i;
+	}
+
+	/** Gibt alle Striche, deren Boundingbox das Rechteck beruehrt, an w. */
+	void collect(double minx, double miny, double maxx, double maxy, double[] box, Worker w)
+	{
+	    if(x > maxx  ||  y > maxy  ||  x + size < minx  ||  y + size < miny)
+		return;
+	    for(int k = 0; k < count; k++)
+	    {
+		int i = items[k];
+		if(box[4*i] <= maxx  &&  box[4*i + 2] >= minx  &&  box[4*i + 1] <= maxy  &&  box[4*i + 3] >= miny)
+		    w.add(i);
+	    }
+	    if(kids != null)
+		for(Node kid: kids)
+		    if(kid != null)
+			kid.collect(minx, miny, maxx, maxy, box, w);
+	}
+
+	private final double x;
+
+	private final double y;
+
+	private final double size;
+
+	private Node[] kids;
+
+	private int[] items = new int[0];
+
+	private int count;
+    }
+
+    /** Schreibt die Kachelpyramide einer Spirolateralkurve in Regenbogenfarben.
+      * Aufruf: <code>java TilePyramid verzeichnis maxZoom angle repetitions</code>
+      */
+    public static void main(String... args) throws IOException
+    {
+	int angle = Integer.parseInt(args[2]);
+	int repetitions = Integer.parseInt(args[3]);
+	Spirolateral curve = new Spirolateral();
+	int n = curve.compute(1, angle, repetitions);
+	double[] xy = curve.vertices();
+	Shades shades = new Shades(repetitions);
+	Turtle t = new Turtle();
+	for(int k = 1; k < n; k++)
+	{
+	    t.color(shades.shadeRgb((k - 1)%repetitions));
+	    t.moveTo(xy[2*k], xy[2*k + 1]);
+	}
+	long start = System.nanoTime();
+	long tiles = new TilePyramid(t.segments()).write(new File(args[0]), Integer.parseInt(args[1]));
+	System.out.printf("%d Striche, %d Kacheln, %.0f ms%n", n - 1, tiles, (System.nanoTime() - start)/1e6);
+    }
+
+    /** Rand um die Zeichnung als Anteil ihrer Groesse. */
+    private static final double MARGIN = 0.01;
+
+    /** Tiefste Stufe des Quadtrees. */
+    private static final int MAX_DEPTH = 16;
+
+    /** Durchsichtig, zum Leeren der Kacheln. */
+    private static final Color TRANSPARENT = new Color(0, 0, 0, 0);
+
+    /** Die Striche der Zeichnung. */
+    private final SegmentBuffer segments;
+
+    /** Kantenlaenge einer Kachel in Pixel. */
+    private final int tileSize;
+
+    /** Boundingbox jedes Strichs, je minx, miny, maxx, maxy. */
+    private final double[] box;
+
+    /** Breiteste Linie in logischen Koordinaten. */
+    private final double maxWidth;
+
+    /** Linke Kante der quadratischen Welt. */
+    private final double worldX;
+
+    /** Untere Kante der quadratischen Welt. */
+    private final double worldY;
+
+    /** Kantenlaenge der quadratischen Welt. */
+    private final double worldSize;
+
+    /** Wurzel des Quadtrees. */
+    private final Node root;
+}
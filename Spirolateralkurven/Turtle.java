@@ -0,0 +1,149 @@
+/** Eine Turtle, die nicht selbst malt, sondern ihre Striche in einen
+  * {@link SegmentBuffer} schreibt.
+  * Die Klasse braucht weder AWT noch einen Bildschirm.
+  *
+  * <p>Jede Turtle hat ihren eigenen Puffer. Mehrere Turtles koennen darum
+  * gleichzeitig in verschiedenen Threads laufen, ohne sich abzustimmen;
+  * gemalt wird erst, wenn ein {@link Painter} die Puffer mit
+  * {@link Painter#segments} uebernimmt.
+  * @see TurtlePainter#parallel
+  */
+public class Turtle
+{
+    /** Erzeugt eine Turtle im Ursprung mit Blick nach rechts.
+      * Sie malt weiss in der Linienbreite des Painters.
+      */
+    public Turtle()
+    {
+	this(0, 0, 0, 0xFFFFFFFF);
+    }
+
+    /** Erzeugt eine Turtle.
+      * @param x Horizontale Startposition.
+      * @param y Vertikale Startposition.
+      * @param d Orientierung in Grad, 0 = 3 Uhr, gegen den Uhrzeigersinn.
+      * @param argb Zeichenfarbe 0xAARRGGBB.
+      */
+    public Turtle(double x, double y, double d, int argb)
+    {
+	atx = x;
+	aty = y;
+	direction = Math.toRadians(d);
+	color = argb;
+    }
+
+    /** Bewegt die Turtle um die Entfernung dx vorwaerts und malt dabei einen
+      * Strich.
+      * @param dx Entfernung um die sich die Turtle bewegt.
+      */
+    public void move(double dx)
+    {
+	moveTo(atx + dx*Math.cos(direction), aty + dx*Math.sin(direction));
+    }
+
+    /** Bewegt die Turtle zum Punkte (x, y) und malt dabei einen
+      * Strich.
+      * @param x Horizontale Koordinate des Zielpunktes.
+      * @param y Vertikale Koordinate des Zielpunktes.
+      */
+    public void moveTo(double x, double y)
+    {
+	segments.add(atx, aty, x, y, color, width);
+	atx = x;
+	aty = y;
+    }
+
+    /** Bewegt die Turtle um die Entfernung dx vorwaerts und malt dabei nicht.
+      * @param dx Entfernung um die sich die Turtle bewegt.
+      */
+    public void fly(double dx)
+    {
+	atx += dx*Math.cos(direction);
+	aty += dx*Math.sin(direction);
+    }
+
+    /** Bewegt die Turtle zum Punkte (x, y) und malt dabei nicht.
+      * @param x Horizontale Koordinate des Zielpunktes.
+      * @param y Vertikale Koordinate des Zielpunktes.
+      */
+    public void flyTo(double x, double y)
+    {
+	atx = x;
+	aty = y;
+    }
+
+    /** Dreht die Turtle um d Grad gegen den Uhrzeigersinn.
+      * @param d Anzahl Grad um die sich die Turtle dreht.
+      */
+    public void turn(double d)
+    {
+	direction += Math.toRadians(d);
+    }
+
+    /** Dreht die Turtle auf die Orientierung d Grad.
+      * Die Orientierung zaehlt ab 0 Grad = 3 Uhr gegen den Uhrzeigersinn.
+      * @param d Anzahl Grad um die sich die Turtle dreht.
+      */
+    public void turnTo(double d)
+    {
+	direction = Math.toRadians(d);
+    }
+
+    /** Legt die Zeichenfarbe neu fest.
+      * @param argb Farbe 0xAARRGGBB.
+      */
+    public void color(int argb)
+    {
+	color = argb;
+    }
+
+    /** Aendert die Breite von Linien.
+      * @param d Neue Linienbreite in logischen Koordinaten, 0 = Linienbreite des Painters.
+      */
+    public void lineWidth(double d)
+    {
+	width = d;
+    }
+
+    /** Gibt Auskunft über den Ort der Turtle.
+      * @return Horizontale Position.
+      */
+    public double getXPos()
+    {
+	return atx;
+    }
+
+    /** Gibt Auskunft über den Ort der Turtle.
+      * @return Vertikale Position.
+      */
+    public double getYPos()
+    {
+	return aty;
+    }
+
+    /** Liefert die bisher gemalten Striche.
+      * @return Der Puffer der Turtle.
+      */
+    public SegmentBuffer segments()
+    {
+	return segments;
+    }
+
+    /** Aktuelle Position der Turtle. */
+    private double atx;
+
+    /** Aktuelle Position der Turtle. */
+    private double aty;
+
+    /** Aktuelle Orientierung der Turtle im Bogenmass. */
+    private double direction;
+
+    /** Zeichenfarbe 0xAARRGGBB. */
+    private int color;
+
+    /** Linienbreite, 0 = Linienbreite des Painters. */
+    private double width;
+
+    /** Die gemalten Striche. */
+    private final SegmentBuffer segments = new SegmentBuffer();
+}
@@ -1,4 +1,7 @@
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 import java.awt.*;
 import java.awt.image.*;
 import java.awt.event.*;
@@ -87,7 +90,7 @@ public class TurtlePainter extends Painter
     {
     	double nextx = atx + dx*cos(direction);
 	double nexty = aty + dx*sin(direction);
-	line(atx, aty, nextx, nexty);
+	segment(atx, aty, nextx, nexty);
 	atx = nextx;
 	aty = nexty;
     }
@@ -101,11 +104,277 @@ public class TurtlePainter extends Painter
     {
     	double nextx = x;
 	double nexty = y;
-	line(atx, aty, nextx, nexty);
+	segment(atx, aty, nextx, nexty);
 	atx = nextx;
 	aty = nexty;
     }
     
+    /** Malt einen Strich der Turtle, im Dichtemodus in den Zaehlpuffer,
+      * mit einem Strom nur in den Strom.
+      * @param x0 Horizontale Koordinate des Startpunktes.
+      * @param y0 Vertikale Koordinate des Startpunktes.
+      * @param x1 Horizontale Koordinate des Zielpunktes.
+      * @param y1 Vertikale Koordinate des Zielpunktes.
+      */
+    protected void segment(double x0, double y0, double x1, double y1)
+    {
+	PainterMetrics.get().segment();
+	if(stream != null)
+	{
+	    stream.add(x0, y0, x1, y1, colorRgb(), lineWidth());
+	    return;
+	}
+	if(density != null)
+	    density.line(pixelx(x0), pixely(y0), pixelx(x1), pixely(y1));
+	else if(tolerance > 0)
+	    simplified(x0, y0, x1, y1);
+	else
+	    line(x0, y0, x1, y1);
+	if(frameMoves > 0  &&  ++moves%frameMoves == 0)
+	{
+	    try
+	    {
+		frame();
+	    }
+	    catch(IOException ex)
+	    {
+		throw new UncheckedIOException(ex);
+	    }
+	}
+    }
+
+    /** Laesst mehrere Turtles gleichzeitig im gemeinsamen Thread-Pool laufen.
+      * @param programs Je ein Programm pro Turtle.
+      * @see #parallel(ExecutorService, Consumer...)
+      */
+    @SafeVarargs
+    public final void parallel(Consumer<Turtle>... programs) throws InterruptedException
+    {
+	parallel(ForkJoinPool.commonPool(), programs);
+    }
+
+    /** Laesst mehrere Turtles gleichzeitig laufen.
+      * Jedes Programm bekommt eine eigene {@link Turtle}, die am Ort, mit der
+      * Orientierung und in der Farbe dieser Turtle startet und ihre Striche
+      * nur in ihren eigenen Puffer schreibt.
+      * Die Puffer werden danach in der Reihenfolge der Programme gemalt,
+      * das Bild ist also immer dasselbe, egal welches Programm zuerst fertig ist.
+      * Gemalt wird schon, waehrend die spaeteren Programme noch laufen.
+      * Diese Turtle selbst bewegt sich nicht.
+      * @param pool Fuehrt die Programme aus.
+      * @param programs Je ein Programm pro Turtle.
+      * @throws InterruptedException wenn der Thread beim Warten unterbrochen wird;
+      * die noch laufenden Programme werden dann abgebrochen.
+      */
+    @SafeVarargs
+    public final void parallel(ExecutorService pool, Consumer<Turtle>... programs) throws InterruptedException
+    {
+	int argb = colorRgb();
+	double x = atx;
+	double y = aty;
+	double d = toDegrees(direction);
+	java.util.List<Future<Turtle>> turtles = new ArrayList<Future<Turtle>>(programs.length);
+	for(Consumer<Turtle> program: programs)
+	    turtles.add(pool.submit(() ->
+				    {
+					Turtle t = new Turtle(x, y, d, argb);
+					program.accept(t);
+					return t;
+				    }));
+	try
+	{
+	    for(Future<Turtle> f: turtles)
+		segments(f.get().segments());
+	}
+	catch(ExecutionException ex)
+	{
+	    if(ex.getCause() instanceof RuntimeException)
+		throw (RuntimeException)ex.getCause();
+	    if(ex.getCause() instanceof Error)
+		throw (Error)ex.getCause();
+	    throw new IllegalStateException(ex.getCause());
+	}
+	finally
+	{
+	    // nach einem Fehler oder einer Unterbrechung laufen die uebrigen Programme nicht weiter
+	    for(Future<Turtle> f: turtles)
+		f.cancel(true);
+	}
+    }
+
+    /** Vereinfacht die Striche vor dem Malen.
+      * Aneinanderhaengende Striche gleicher Farbe und Breite werden zu einem
+      * zusammengefasst, solange keiner der ausgelassenen Eckpunkte weiter als
+      * tolerance Pixel von der Verbindungslinie abweicht. Fast gerade Stuecke
+      * und Striche unterhalb der Pixelgroesse kosten dann nur noch eine Linie.
+      * Bei vielen Wiederholungen in kleinen Bildern sinkt die Zahl der Linien
+      * um Groessenordnungen, das Bild aendert sich hoechstens um tolerance Pixel.
+      * Im Dichtemodus und mit einem Strom wird nicht vereinfacht.
+      * @param tolerance Erlaubte Abweichung in Pixel, zum Beispiel 0.25; 0 = aus.
+      */
+    public void simplify(double tolerance)
+    {
+	flushRun();
+	this.tolerance = tolerance;
+    }
+
+    /** Verlaengert den laufenden Linienzug um einen Strich, wenn die
+      * Abweichung es erlaubt, und malt sonst den bisherigen Zug.
+      */
+    private void simplified(double x0, double y0, double x1, double y1)
+    {
+	int argb = colorRgb();
+	double w = lineWidth();
+	if(running  &&  x0 == runX  &&  y0 == runY  &&  argb == runColor  &&  w == runWidth
+	   &&  runPoints < run.length/2  &&  fits(x1, y1))
+	{
+	    run[2*runPoints] = runX;
+	    run[2*runPoints + 1] = runY;
+	    runPoints++;
+	    runX = x1;
+	    runY = y1;
+	    return;
+	}
+	flushRun();
+	running = true;
+	startX = x0;
+	startY = y0;
+	runX = x1;
+	runY = y1;
+	runColor = argb;
+	runWidth = w;
+    }
+
+    /** Prueft, ob alle Eckpunkte des laufenden Zuges nah genug an der Linie
+      * vom Anfang des Zuges nach (x1, y1) liegen.
+      */
+    private boolean fits(double x1, double y1)
+    {
+	double t = tolerance/(pixelx(1) - pixelx(0));
+	double tt = t*t;
+	if(distance2(runX, runY, x1, y1) > tt)
+	    return false;
+	for(int i = 0; i < runPoints; i++)
+	    if(distance2(run[2*i], run[2*i + 1], x1, y1) > tt)
+		return false;
+	return true;
+    }
+
+    /** Quadrat des Abstands von (px, py) zur Strecke vom Anfang des Zuges nach (x1, y1). */
+    private double distance2(double px, double py, double x1, double y1)
+    {
+	double dx = x1 - startX;
+	double dy = y1 - startY;
+	double l2 = dx*dx + dy*dy;
+	double u = l2 == 0?  0:  Math.max(0, Math.min(1, ((px - startX)*dx + (py - startY)*dy)/l2));
+	double ex = startX + u*dx - px;
+	double ey = startY + u*dy - py;
+	return ex*ex + ey*ey;
+    }
+
+    /** Malt den laufenden Linienzug, bevor Painter etwas anderes zeichnet. */
+    protected void flush()
+    {
+	flushRun();
+    }
+
+    /** Malt den laufenden Linienzug als eine Linie. */
+    private void flushRun()
+    {
+	if(!running)
+	    return;
+	running = false;
+	runPoints = 0;
+	styledLine(runColor, runWidth, startX, startY, runX, runY);
+    }
+
+    /** Schliesst die SVG-Datei ab, nachdem der laufende Linienzug gemalt ist.
+      * @throws IOException wenn beim Schreiben irgendwann ein Fehler aufgetreten ist.
+      */
+    public void svgClose() throws IOException
+    {
+	flushRun();
+	super.svgClose();
+    }
+
+    /** Schickt alle folgenden Striche in einen Strom, statt sie selbst zu malen.
+      * Farbe und Linienbreite werden mitgeschickt. Malen, SVG schreiben und
+      * Ausmessen uebernehmen dann die Abnehmer des Stroms, alle gleichzeitig
+      * aus einem Durchlauf der Turtle.
+      * Der Strom wird hier nicht geschlossen.
+      * @param s Strom, null = wieder selbst malen.
+      * @see SegmentSink
+      */
+    public void stream(SegmentStream s)
+    {
+	flushRun();
+	stream = s;
+    }
+
+    /** Startet die Aufnahme einer Animation, die der Turtle beim Zeichnen zusieht.
+      * @param filename Name eines GIF, oder ein Muster wie frame%05d.png
+      * fuer einzeln nummerierte Bilder.
+      * @param delay Anzeigedauer pro Bild in Millisekunden, nur fuer GIF.
+      * @param n Nach je n Strichen wird ein Bild aufgenommen.
+      * @see #animateClose
+      */
+    public void animate(String filename, int delay, int n) throws IOException
+    {
+	animate(filename, delay);
+	frameMoves = n;
+	moves = 0;
+    }
+
+    /** Nimmt das letzte Bild auf, beendet die Animation und wartet,
+      * bis alle Bilder geschrieben sind.
+      * @throws IOException wenn beim Schreiben ein Fehler aufgetreten ist.
+      */
+    public void animateClose() throws IOException
+    {
+	if(frameMoves > 0  &&  moves%frameMoves != 0)
+	    frame();
+	frameMoves = 0;
+	super.animateClose();
+    }
+
+    /** Schaltet den Dichtemodus ein oder aus.
+      * Im Dichtemodus zaehlt die Turtle, wie oft sie jedes Pixel ueberfaehrt,
+      * statt zu malen. Beim Anzeigen und Speichern wird die Dichte als
+      * Waermebild von blau ueber magenta und rot nach gelb dargestellt
+      * und ersetzt das ganze Bild.
+      * Die Zeichenfarbe und die Linienbreite werden dabei ignoriert.
+      * @param on true = Dichtemodus ein, false = aus; der Zaehlpuffer wird verworfen.
+      */
+    public void density(boolean on)
+    {
+	flushRun();
+	if(on)
+	{
+	    heat = new Shades(1, 0, 4*256);
+	    heat.gradient(4096, 3*256);
+	    density = new DensityBuffer(pixelWidth(), pixelHeight());
+	    toneMapped = new int[pixelWidth()*pixelHeight()];
+	}
+	else
+	{
+	    density = null;
+	    toneMapped = null;
+	}
+    }
+
+    /** Malt den laufenden, vereinfachten Linienzug und uebertraegt im
+      * Dichtemodus das Waermebild in das Pixelbild.
+      */
+    protected void render()
+    {
+	flushRun();
+	if(density != null)
+	{
+	    density.toneMap(heat, 0xFF000000, toneMapped);
+	    blit(toneMapped);
+	}
+    }
+
     /** Bewegt die Turtle um die Entfernung dx vorwaerts und malt dabei nicht.
       * @param dx Entfernung um die sich die Turtle bewegt.
       */
@@ -228,4 +497,52 @@ public class TurtlePainter extends Painter
     
     /** Aktuelle Orientierung der Turtle. */
     private double direction;
+
+    /** Nach so vielen Strichen wird ein Bild der Animation aufgenommen, 0 = keine Animation. */
+    private int frameMoves;
+
+    /** Anzahl Striche seit dem Start der Animation. */
+    private int moves;
+
+    /** Erlaubte Abweichung beim Vereinfachen in Pixel, 0 = nicht vereinfachen. */
+    private double tolerance;
+
+    /** true, solange ein vereinfachter Linienzug noch nicht gemalt ist. */
+    private boolean running;
+
+    /** Anfang des laufenden Linienzuges. */
+    private double startX;
+
+    /** Anfang des laufenden Linienzuges. */
+    private double startY;
+
+    /** Ende des laufenden Linienzuges. */
+    private double runX;
+
+    /** Ende des laufenden Linienzuges. */
+    private double runY;
+
+    /** Farbe des laufenden Linienzuges. */
+    private int runColor;
+
+    /** Linienbreite des laufenden Linienzuges in logischen Koordinaten. */
+    private double runWidth;
+
+    /** Ausgelassene Eckpunkte des laufenden Linienzuges, paarweise x und y. */
+    private final double[] run = new double[2*64];
+
+    /** Anzahl ausgelassener Eckpunkte. */
+    private int runPoints;
+
+    /** Strom, in den die Striche gehen, sonst null. */
+    private SegmentStream stream;
+
+    /** Zaehlpuffer im Dichtemodus, sonst null. */
+    private DensityBuffer density;
+
+    /** Farbverlauf fuer das Waermebild im Dichtemodus. */
+    private Shades heat;
+
+    /** Das Waermebild, wird bei jedem Anzeigen neu gefuellt. */
+    private int[] toneMapped;
 }
@@ -0,0 +1,498 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/** Ein Turtle-Programm in einer kleinen Befehlssprache.
+  * Der Text wird einmal uebersetzt und kann danach beliebig oft und in
+  * beliebig vielen Threads gleichzeitig auf einer {@link Turtle} laufen.
+  *
+  * <p>Die Sprache kennt folgende Befehle, getrennt durch Leerraum:
+<pre>move d            d vorwaerts, mit Strich
+fly d             d vorwaerts, ohne Strich
+turn a            a Grad gegen den Uhrzeigersinn drehen
+color #RRGGBB     Zeichenfarbe, auch #AARRGGBB
+width w           Linienbreite, 0 = Linienbreite des Painters
+repeat n [ ... ]  den Block n mal ausfuehren
+; Kommentar       bis zum Zeilenende</pre>
+  * Eine Spirolateralkurve mit Winkel 90 und 5 Strecken ist zum Beispiel
+  * <code>repeat 4 [ move 1 turn 90 move 2 turn 90 move 3 turn 90 move 4 turn 90 move 5 turn 90 ]</code>.
+  *
+  * <p>Uebersetzt wird in ein flaches int-Array aus Befehlscodes und
+  * Operanden, das eine einfache Schleife ohne Objekte abarbeitet.
+  * Vorher werden aufeinanderfolgende Drehungen und Fluege zusammengefasst,
+  * Schleifen ohne Striche durch ihr Ergebnis ersetzt und kurze Schleifen
+  * ausgerollt.
+  *
+  * <p>Mit {@link TurtlePainter#parallel} laufen mehrere Programme gleichzeitig:
+  * <code>tp.parallel(a::run, b::run)</code>.
+  */
+public class TurtleProgram
+{
+    /** Uebersetzt ein Programm.
+      * @param source Programmtext.
+      * @throws IllegalArgumentException wenn der Text kein gueltiges Programm ist.
+      */
+    public TurtleProgram(String source)
+    {
+	tokenize(source);
+	List<Op> ops = optimize(block(0));
+	if(next < tokens.size())
+	    throw error("] ohne repeat");
+	emit(ops, 0);
+	code = Arrays.copyOf(code, length);
+	constants = Arrays.copyOf(constants, constantCount);
+	segments = count(ops);
+	tokens = null;
+	lines = null;
+    }
+
+    /** Uebersetzt ein Programm aus einer Datei.
+      * @param file Datei mit dem Programmtext.
+      * @return Das uebersetzte Programm.
+      */
+    public static TurtleProgram read(File file) throws IOException
+    {
+	return new TurtleProgram(new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+    }
+
+    /** Fuehrt das Programm auf einer Turtle aus.
+      * Die Turtle startet dort, wo sie gerade steht.
+      * Jeder Aufruf legt die Schleifenzaehler neu an, ein int pro
+      * Schachtelungsebene; wer oft kurze Programme laufen laesst, gibt sie
+      * mit {@link #run(Turtle, int[])} selbst vor.
+      * @param t Turtle, die die Striche sammelt.
+      */
+    public void run(Turtle t)
+    {
+	run(t, new int[depth]);
+    }
+
+    /** Fuehrt das Programm mit vorgegebenen Schleifenzaehlern aus.
+      * Ein Feld darf immer nur von einem Lauf gleichzeitig benutzt werden.
+      * @param t Turtle, die die Striche sammelt.
+      * @param counter Mindestens {@link #depth()} ints, Inhalt beliebig.
+      * @throws IllegalArgumentException wenn counter zu kurz ist.
+      */
+    public void run(Turtle t, int[] counter)
+    {
+	if(counter.length < depth)
+	    throw new IllegalArgumentException("Das Programm braucht " + depth + " Schleifenzaehler, nicht " + counter.length);
+	int[] code = this.code;
+	double[] constants = this.constants;
+	int sp = 0;
+	int pc = 0;
+	while(pc < code.length)
+	{
+	    switch(code[pc])
+	    {
+	    case MOVE:
+		t.move(constants[code[pc + 1]]);
+		pc += 2;
+		break;
+	    case FLY:
+		t.fly(constants[code[pc + 1]]);
+		pc += 2;
+		break;
+	    case TURN:
+		t.turn(constants[code[pc + 1]]);
+		pc += 2;
+		break;
+	    case COLOR:
+		t.color(code[pc + 1]);
+		pc += 2;
+		break;
+	    case WIDTH:
+		t.lineWidth(constants[code[pc + 1]]);
+		pc += 2;
+		break;
+	    case LOOP:
+		counter[sp++] = code[pc + 1];
+		pc += 2;
+		break;
+	    case NEXT:
+		if(--counter[sp - 1] > 0)
+		    pc = code[pc + 1];
+		else
+		{
+		    sp--;
+		    pc += 2;
+		}
+		break;
+	    }
+	}
+    }
+
+    /** Liefert die Anzahl Striche, die ein Lauf malt.
+      * Damit lassen sich zu grosse Programme ablehnen, bevor sie laufen.
+      * @return Anzahl Striche, Long.MAX_VALUE bei noch mehr.
+      */
+    public long segments()
+    {
+	return segments;
+    }
+
+    /** Liefert die Schachtelungstiefe der Schleifen im uebersetzten Programm.
+      * @return Anzahl Schleifenzaehler, die {@link #run(Turtle, int[])} braucht.
+      */
+    public int depth()
+    {
+	return depth;
+    }
+
+    /** Liefert die Laenge des uebersetzten Programms.
+      * @return Anzahl ints aus Befehlscodes und Operanden.
+      */
+    public int size()
+    {
+	return code.length;
+    }
+
+    /** Zerlegt den Text in Woerter; [ und ] sind eigene Woerter. */
+    private void tokenize(String source)
+    {
+	int line = 1;
+	int i = 0;
+	while(i < source.length())
+	{
+	    char c = source.charAt(i);
+	    if(c == '\n')
+	    {
+		line++;
+		i++;
+	    }
+	    else if(Character.isWhitespace(c))
+		i++;
+	    else if(c == ';')
+	    {
+		while(i < source.length()  &&  source.charAt(i) != '\n')
+		    i++;
+	    }
+	    else if(c == '['  ||  c == ']')
+	    {
+		tokens.add(String.valueOf(c));
+		lines.add(line);
+		i++;
+	    }
+	    else
+	    {
+		int start = i;
+		while(i < source.length()  &&  !Character.isWhitespace(source.charAt(i))
+		      &&  "[];".indexOf(source.charAt(i)) < 0)
+		    i++;
+		tokens.add(source.substring(start, i).toLowerCase(Locale.ROOT));
+		lines.add(line);
+	    }
+	}
+    }
+
+    /** Liest Befehle bis zum Ende oder bis zur schliessenden Klammer. */
+    private List<Op> block(int level)
+    {
+	depth = Math.max(depth, level);
+	List<Op> ops = new ArrayList<Op>();
+	while(next < tokens.size()  &&  !tokens.get(next).equals("]"))
+	{
+	    String command = tokens.get(next++);
+	    switch(command)
+	    {
+	    case "move":
+		ops.add(new Op(MOVE, number()));
+		break;
+	    case "fly":
+		ops.add(new Op(FLY, number()));
+		break;
+	    case "turn":
+		ops.add(new Op(TURN, number()));
+		break;
+	    case "width":
+		ops.add(new Op(WIDTH, number()));
+		break;
+	    case "color":
+		ops.add(new Op(COLOR, color()));
+		break;
+	    case "repeat":
+		double n = number();
+		if(n != Math.rint(n)  ||  n < 0  ||  n > Integer.MAX_VALUE)
+		    throw error("repeat braucht eine ganze Zahl >= 0");
+		if(next >= tokens.size()  ||  !tokens.get(next).equals("["))
+		    throw error("[ erwartet");
+		if(level >= MAX_DEPTH)
+		    throw error("repeat tiefer als " + MAX_DEPTH + " geschachtelt");
+		next++;
+		Op loop = new Op(LOOP, n);
+		loop.body = block(level + 1);
+		if(next >= tokens.size())
+		    throw error("] fehlt");
+		next++;
+		ops.add(loop);
+		break;
+	    default:
+		next--;
+		throw error("unbekannter Befehl " + command);
+	    }
+	}
+	return ops;
+    }
+
+    private double number()
+    {
+	if(next >= tokens.size())
+	    throw error("Zahl fehlt");
+	try
+	{
+	    double d = Double.parseDouble(tokens.get(next));
+	    if(Double.isNaN(d)  ||  Double.isInfinite(d))
+		throw new NumberFormatException();
+	    next++;
+	    return d;
+	}
+	catch(NumberFormatException ex)
+	{
+	    throw error("keine Zahl: " + tokens.get(next));
+	}
+    }
+
+    private double color()
+    {
+	String s = next < tokens.size()?  tokens.get(next):  "";
+	if(!s.startsWith("#")  ||  s.length() != 7  &&  s.length() != 9)
+	    throw error("Farbe #RRGGBB oder #AARRGGBB erwartet");
+	try
+	{
+	    long argb = Long.parseLong(s.substring(1), 16);
+	    next++;
+	    return (int)(s.length() == 7?  0xFF000000L | argb:  argb);
+	}
+	catch(NumberFormatException ex)
+	{
+	    throw error("keine Farbe: " + s);
+	}
+    }
+
+    private IllegalArgumentException error(String message)
+    {
+	int i = Math.min(next, lines.size() - 1);
+	return new IllegalArgumentException((i < 0?  "":  "Zeile " + lines.get(i) + ": ") + message);
+    }
+
+    /** Vereinfacht eine Befehlsfolge, ohne das Ergebnis zu aendern.
+      * Schleifen werden von innen nach aussen vereinfacht.
+      */
+    private static List<Op> optimize(List<Op> ops)
+    {
+	List<Op> out = new ArrayList<Op>();
+	for(Op op : ops)
+	{
+	    if(op.code != LOOP)
+	    {
+		append(out, op);
+		continue;
+	    }
+	    List<Op> body = optimize(op.body);
+	    long n = (long)op.arg;
+	    if(n == 0  ||  body.isEmpty())
+		continue;
+	    if(body.size() == 1  &&  (body.get(0).code == TURN  ||  body.get(0).code == FLY))
+		append(out, new Op(body.get(0).code, n*body.get(0).arg));
+	    else if(n == 1  ||  !draws(body)  &&  !moves(body))
+		body.forEach(b -> append(out, b));
+	    else if(n*size(body) <= UNROLL)
+	    {
+		for(long i = 0; i < n; i++)
+		    body.forEach(b -> append(out, b));
+	    }
+	    else
+	    {
+		Op loop = new Op(LOOP, n);
+		loop.body = body;
+		out.add(loop);
+	    }
+	}
+	return out;
+    }
+
+    /** Haengt einen Befehl an und fasst ihn mit dem vorigen zusammen, wo das geht. */
+    private static void append(List<Op> out, Op op)
+    {
+	Op last = out.isEmpty()?  null:  out.get(out.size() - 1);
+	if(last != null  &&  last.code == op.code)
+	{
+	    switch(op.code)
+	    {
+	    case TURN:
+	    case FLY:
+		out.set(out.size() - 1, new Op(op.code, last.arg + op.arg));
+		if(last.arg + op.arg == 0)
+		    out.remove(out.size() - 1);
+		return;
+	    case COLOR:
+	    case WIDTH:
+		out.set(out.size() - 1, op);
+		return;
+	    }
+	}
+	if((op.code == TURN  ||  op.code == FLY)  &&  op.arg == 0)
+	    return;
+	out.add(op);
+    }
+
+    /** true, wenn die Befehle Striche malen. */
+    private static boolean draws(List<Op> ops)
+    {
+	for(Op op : ops)
+	    if(op.code == MOVE  ||  op.code == LOOP)
+		return true;
+	return false;
+    }
+
+    /** true, wenn die Befehle Ort oder Richtung aendern. */
+    private static boolean moves(List<Op> ops)
+    {
+	for(Op op : ops)
+	    if(op.code == TURN  ||  op.code == FLY)
+		return true;
+	return false;
+    }
+
+    /** Anzahl ints, die die Befehle im uebersetzten Programm brauchen. */
+    private static long size(List<Op> ops)
+    {
+	long n = 0;
+	for(Op op : ops)
+	    n += op.code == LOOP?  4 + size(op.body):  2;
+	return n;
+    }
+
+    /** Anzahl Striche, die die Befehle malen, hoechstens Long.MAX_VALUE. */
+    private static long count(List<Op> ops)
+    {
+	try
+	{
+	    long n = 0;
+	    for(Op op : ops)
+	    {
+		if(op.code == MOVE)
+		    n = Math.addExact(n, 1);
+		else if(op.code == LOOP)
+		    n = Math.addExact(n, Math.multiplyExact((long)op.arg, count(op.body)));
+	    }
+	    return n;
+	}
+	catch(ArithmeticException ex)
+	{
+	    return Long.MAX_VALUE;
+	}
+    }
+
+    /** Schreibt die Befehle als Befehlscodes und Operanden. */
+    private void emit(List<Op> ops, int level)
+    {
+	depth = Math.max(depth, level);
+	for(Op op : ops)
+	{
+	    switch(op.code)
+	    {
+	    case COLOR:
+		put(COLOR, (int)op.arg);
+		break;
+	    case LOOP:
+		put(LOOP, (int)op.arg);
+		int start = length;
+		emit(op.body, level + 1);
+		put(NEXT, start);
+		break;
+	    default:
+		if(constantCount == constants.length)
+		    constants = Arrays.copyOf(constants, 2*constantCount);
+		constants[constantCount] = op.arg;
+		put(op.code, constantCount++);
+	    }
+	}
+    }
+
+    private void put(int op, int operand)
+    {
+	if(length + 2 > code.length)
+	    code = Arrays.copyOf(code, 2*code.length);
+	code[length++] = op;
+	code[length++] = operand;
+    }
+
+    /** Malt ein Programm und gibt die Anzahl Striche aus.
+      * Aufruf: <code>java -Dpainter.hidden=bild.png TurtleProgram datei breite hoehe [logische breite]</code>
+      */
+    public static void main(String... args) throws Exception
+    {
+	long start = System.nanoTime();
+	TurtleProgram program = read(new File(args[0]));
+	Turtle t = new Turtle();
+	program.run(t);
+	long ns = System.nanoTime() - start;
+	TurtlePainter tp = new TurtlePainter(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+					     args.length > 3?  Double.parseDouble(args[3]):  10);
+	tp.segments(t.segments());
+	tp.repaint();
+	System.out.printf("%d Striche, %d ints, %.3f ms%n", program.segments(), program.size(), ns/1e6);
+    }
+
+    /** Ein Befehl vor dem Uebersetzen. */
+    private static class Op
+    {
+	Op(int c, double a)
+	{
+	    code = c;
+	    arg = a;
+	}
+
+	/** Befehlscode. */
+	final int code;
+
+	/** Operand: Zahl, Farbe oder Anzahl Durchlaeufe. */
+	final double arg;
+
+	/** Rumpf einer Schleife. */
+	List<Op> body;
+    }
+
+    private static final int MOVE = 0;
+    private static final int FLY = 1;
+    private static final int TURN = 2;
+    private static final int COLOR = 3;
+    private static final int WIDTH = 4;
+    private static final int LOOP = 5;
+    private static final int NEXT = 6;
+
+    /** Hoechste Schachtelungstiefe von repeat; tiefere Programme wuerden
+      * beim rekursiven Uebersetzen den Stack sprengen. */
+    private static final int MAX_DEPTH = 256;
+
+    /** Schleifen, die ausgerollt hoechstens so viele ints brauchen, werden ausgerollt. */
+    private static final int UNROLL = 64;
+
+    /** Befehlscodes und Operanden. */
+    private int[] code = new int[64];
+
+    /** Zahlen, auf die die Operanden verweisen. */
+    private double[] constants = new double[16];
+
+    /** Belegte Laenge von code beim Uebersetzen. */
+    private int length;
+
+    /** Belegte Laenge von constants beim Uebersetzen. */
+    private int constantCount;
+
+    /** Tiefste Schachtelung der Schleifen. */
+    private int depth;
+
+    /** Anzahl Striche pro Lauf. */
+    private final long segments;
+
+    /** Woerter des Textes beim Uebersetzen. */
+    private List<String> tokens = new ArrayList<String>();
+
+    /** Zeilennummer jedes Wortes beim Uebersetzen. */
+    private List<Integer> lines = new ArrayList<Integer>();
+
+    /** Naechstes Wort beim Uebersetzen. */
+    private int next;
+}
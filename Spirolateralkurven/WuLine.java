@@ -0,0 +1,107 @@
+/** Der Linienalgorithmus von Xiaolin Wu, gemeinsam fuer {@link LineRasterizer}
+  * und {@link DensityBuffer}.
+  * Die Unterklasse bestimmt, was ein Pixel mit einem Deckungsgrad bekommt:
+  * eine gemischte Farbe oder einen hoeheren Zaehler.
+  */
+abstract class WuLine
+{
+    /** @param w Breite in Pixel.
+      * @param h Hoehe in Pixel.
+      */
+    WuLine(int w, int h)
+    {
+	width = w;
+	height = h;
+    }
+
+    /** Rastert eine 1 Pixel breite, kantengeglaettete Linie.
+      * Die Pixelmitten liegen auf ganzen Koordinaten. Zwischen den Enden wird
+      * nur ueber den sichtbaren Bereich gelaufen; liegen beide Enden in
+      * derselben Pixelspalte, wird das Endpixel nur einmal gedeckt.
+      */
+    final void wu(double x0, double y0, double x1, double y1)
+    {
+	boolean steep = Math.abs(y1 - y0) > Math.abs(x1 - x0);
+	if(steep)
+	{
+	    double t = x0;  x0 = y0;  y0 = t;
+	    t = x1;  x1 = y1;  y1 = t;
+	}
+	if(x0 > x1)
+	{
+	    double t = x0;  x0 = x1;  x1 = t;
+	    t = y0;  y0 = y1;  y1 = t;
+	}
+	double dx = x1 - x0;
+	double gradient = dx == 0?  1:  (y1 - y0)/dx;
+
+	// Erster Endpunkt
+	double xend = Math.round(x0);
+	double yend = y0 + gradient*(xend - x0);
+	double xgap = 1 - frac(x0 + 0.5);
+	int xpxl1 = (int)xend;
+	int ypxl1 = (int)Math.floor(yend);
+	plot(steep, xpxl1, ypxl1, (1 - frac(yend))*xgap);
+	plot(steep, xpxl1, ypxl1 + 1, frac(yend)*xgap);
+	double intery = yend + gradient;
+
+	// Zweiter Endpunkt
+	xend = Math.round(x1);
+	yend = y1 + gradient*(xend - x1);
+	xgap = frac(x1 + 0.5);
+	int xpxl2 = (int)xend;
+	int ypxl2 = (int)Math.floor(yend);
+	if(xpxl2 != xpxl1)
+	{
+	    plot(steep, xpxl2, ypxl2, (1 - frac(yend))*xgap);
+	    plot(steep, xpxl2, ypxl2 + 1, frac(yend)*xgap);
+	}
+
+	// Dazwischen, auf den sichtbaren Bereich beschraenkt
+	int first = xpxl1 + 1;
+	int last = xpxl2 - 1;
+	int limit = (steep?  height:  width) - 1;
+	if(first < 0)
+	{
+	    intery += gradient*-first;
+	    first = 0;
+	}
+	if(last > limit)
+	    last = limit;
+	for(int x = first; x <= last; x++)
+	{
+	    int y = (int)Math.floor(intery);
+	    double f = intery - y;
+	    plot(steep, x, y, 1 - f);
+	    plot(steep, x, y + 1, f);
+	    intery += gradient;
+	}
+    }
+
+    /** Deckt ein Pixel zum Anteil c.
+      * Pixel ausserhalb des Bildes muessen uebergangen werden.
+      * @param x Horizontale Pixelkoordinate.
+      * @param y Vertikale Pixelkoordinate.
+      * @param c Deckungsgrad von 0 bis 1.
+      */
+    protected abstract void cover(int x, int y, double c);
+
+    private void plot(boolean steep, int x, int y, double c)
+    {
+	if(steep)
+	    cover(y, x, c);
+	else
+	    cover(x, y, c);
+    }
+
+    private static double frac(double x)
+    {
+	return x - Math.floor(x);
+    }
+
+    /** Breite in Pixel. */
+    protected final int width;
+
+    /** Hoehe in Pixel. */
+    protected final int height;
+}
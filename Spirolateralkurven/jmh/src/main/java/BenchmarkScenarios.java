@@ -0,0 +1,332 @@
+import java.io.*;
+import java.util.*;
+import java.awt.*;
+import java.awt.image.*;
+import java.awt.font.*;
+import spirolateralkurven.jmh.Workload;
+
+/** Die Szenarien der Laufzeitmessungen.
+  * Jede Methode bereitet ein Szenario vor und liefert den Lauf, den JMH misst.
+  * Ein Lauf umfasst n Operationen; die Benchmarkklassen geben dieselbe Zahl
+  * als OperationsPerInvocation an, damit JMH die Zeit pro Operation ausgibt.
+  *
+  * <p>Die Klasse liegt wie die Zeichenklassen im Paket ohne Namen.
+  * JMH verlangt fuer Benchmarkklassen ein Paket, aus dem man das Paket ohne
+  * Namen nicht ansprechen kann; die Klassen in {@link spirolateralkurven.jmh}
+  * holen sich die Laeufe darum ueber {@link spirolateralkurven.jmh.Scenarios}.
+  */
+public class BenchmarkScenarios
+{
+    /** shade() gegen die Tabellenzugriffe und den Verlaufsmodus.
+      * @param method shade, shadeRgb, gradientRgb oder gradientRgbLerp.
+      * @param n Anzahl Operationen pro Lauf.
+      */
+    public static Workload shades(String method, int n)
+    {
+        final Shades shades = new Shades(360);
+        shades.gradient(4096);
+        switch(method)
+        {
+            case "shade":
+                return () -> {
+                    int sum = 0;
+                    for(int i = 0; i < n; i++)
+                        sum += shades.shade(i)[1];
+                    return sum;
+                };
+            case "shadeRgb":
+                return () -> {
+                    int sum = 0;
+                    for(int i = 0; i < n; i++)
+                        sum += shades.shadeRgb(i);
+                    return sum;
+                };
+            case "gradientRgb":
+                return () -> {
+                    int sum = 0;
+                    for(int i = 0; i < n; i++)
+                        sum += shades.gradientRgb(i*(1.0/n));
+                    return sum;
+                };
+            case "gradientRgbLerp":
+                return () -> {
+                    int sum = 0;
+                    for(int i = 0; i < n; i++)
+                        sum += shades.gradientRgbLerp(i*(1.0/n));
+                    return sum;
+                };
+        }
+        throw new IllegalArgumentException("Unbekanntes Szenario: " + method);
+    }
+
+    /** Antialiased drawLine gegen den Zaehlpuffer des Dichtemodus.
+      * @param method drawLine oder wu.
+      * @param n Anzahl Strecken pro Lauf.
+      */
+    public static Workload density(String method, int n)
+    {
+        final int size = 1024;
+        final double[] p = segments(n, size);
+        switch(method)
+        {
+            case "drawLine":
+                BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+                final Graphics2D g = image.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setStroke(new BasicStroke(1f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+                g.setColor(Color.WHITE);
+                return () -> {
+                    for(int i = 0; i < p.length; i += 4)
+                        g.drawLine((int)p[i], (int)p[i + 1], (int)p[i + 2], (int)p[i + 3]);
+                    return 0;
+                };
+            case "wu":
+                final DensityBuffer density = new DensityBuffer(size, size);
+                return () -> {
+                    for(int i = 0; i < p.length; i += 4)
+                        density.line(p[i], p[i + 1], p[i + 2], p[i + 3]);
+                    return (long)density.get(size/2, size/2);
+                };
+        }
+        throw new IllegalArgumentException("Unbekanntes Szenario: " + method);
+    }
+
+    /** drawLine gegen das direkte Zeichnen in die Pixel.
+      * @param method drawLine oder raster.
+      * @param width Linienbreite in Pixel.
+      * @param aa true = Kanten glaetten.
+      * @param n Anzahl Strecken pro Lauf.
+      */
+    public static Workload lines(String method, int width, boolean aa, int n)
+    {
+        final int size = 1024;
+        final double[] p = segments(n, size);
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        switch(method)
+        {
+            case "drawLine":
+                final Graphics2D g = image.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, aa?  RenderingHints.VALUE_ANTIALIAS_ON:  RenderingHints.VALUE_ANTIALIAS_OFF);
+                g.setStroke(new BasicStroke(width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+                g.setColor(Color.WHITE);
+                return () -> {
+                    for(int i = 0; i < p.length; i += 4)
+                        g.drawLine((int)p[i], (int)p[i + 1], (int)p[i + 2], (int)p[i + 3]);
+                    return 0;
+                };
+            case "raster":
+                final int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+                final LineRasterizer r = new LineRasterizer(pixels, size, size);
+                return () -> {
+                    for(int i = 0; i < p.length; i += 4)
+                        r.line(p[i], p[i + 1], p[i + 2], p[i + 3], width, 0xFFFFFFFF, aa);
+                    return pixels[size*size/2];
+                };
+        }
+        throw new IllegalArgumentException("Unbekanntes Szenario: " + method);
+    }
+
+    /** getStringBounds und drawString gegen den Zwischenspeicher
+      * fuer 200 immer wieder verwendete Beschriftungen.
+      * @param method drawString oder cached.
+      * @param n Anzahl Texte pro Lauf.
+      */
+    public static Workload text(String method, int n)
+    {
+        final String[] labels = new String[200];
+        for(int i = 0; i < labels.length; i++)
+            labels[i] = "P" + i + " = " + (i*0.37);
+        BufferedImage image = new BufferedImage(1024, 1024, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        final Font font = new Font("Dialog", Font.BOLD, 14);
+        g.setFont(font);
+        final FontRenderContext frc = g.getFontRenderContext();
+        switch(method)
+        {
+            case "drawString":
+                return () -> {
+                    double w = 0;
+                    for(int i = 0; i < n; i++)
+                    {
+                        String s = labels[i%labels.length];
+                        w += font.getStringBounds(s, frc).getWidth();
+                        g.drawString(s, i%900, i%1000 + 20);
+                    }
+                    return (long)w;
+                };
+            case "cached":
+                final TextCache cache = new TextCache(1024);
+                return () -> {
+                    double w = 0;
+                    for(int i = 0; i < n; i++)
+                    {
+                        TextCache.Entry e = cache.get(font, frc, labels[i%labels.length]);
+                        w += e.bounds.getWidth();
+                        e.draw(g, i%900, i%1000 + 20);
+                    }
+                    return (long)w;
+                };
+        }
+        throw new IllegalArgumentException("Unbekanntes Szenario: " + method);
+    }
+
+    /** Wie viele Spirolateralkurven pro Sekunde berechnet werden koennen.
+      * @param n Anzahl Kurven pro Lauf.
+      */
+    public static Workload geometry(int n)
+    {
+        final Spirolateral curve = new Spirolateral();
+        return () -> {
+            long vertices = 0;
+            for(int i = 0; i < n; i++)
+                vertices += curve.compute(1, 1 + i%179, 1 + i%17);
+            return vertices;
+        };
+    }
+
+    /** Die oeffentlichen Zeichenoperationen von Painter und TurtlePainter.
+      * Jeder Lauf endet mit repaint(); im Modus painter.hidden wird dabei
+      * jedesmal gespeichert.
+      * @param op line, poly, filledPoly, text, clear, save, turtleMove oder turtleScene.
+      * @param size Kantenlaenge der Flaeche in Pixel.
+      * @param aa true = Kanten glaetten.
+      * @param hidden true = mit painter.hidden anlegen.
+      * @param n Anzahl Operationen pro Lauf.
+      */
+    public static Workload painter(String op, int size, boolean aa, boolean hidden, int n) throws IOException
+    {
+        final File png = File.createTempFile("benchmark", ".png");
+        png.deleteOnExit();
+        final double[] p = segments(Math.max(n, 10_000), size);
+        for(int i = 0; i < p.length; i++)
+            p[i] = p[i]*10/size - 5;
+        final int[] regular = new int[16];
+        final double[] polygon = new double[2*regular.length];
+        for(int i = 0; i < regular.length; i++)
+        {
+            polygon[2*i] = 4*Math.cos(2*Math.PI*i/regular.length);
+            polygon[2*i + 1] = 4*Math.sin(2*Math.PI*i/regular.length);
+        }
+
+        // Painter liest painter.hidden beim Anlegen
+        if(hidden)
+            System.setProperty("painter.hidden", png.getPath());
+        final Painter painter;
+        final TurtlePainter turtle;
+        try
+        {
+            painter = op.startsWith("turtle")?  null:  new Painter(size, size, 10, false);
+            turtle = op.startsWith("turtle")?  new TurtlePainter(size, size, 10):  null;
+        }
+        finally
+        {
+            System.clearProperty("painter.hidden");
+        }
+        if(painter != null)
+        {
+            painter.antialias(aa);
+            painter.color(Color.WHITE);
+        }
+        else
+            turtle.antialias(aa);
+
+        switch(op)
+        {
+            case "line":
+                return () -> {
+                    for(int i = 0; i < 4*n; i += 4)
+                        painter.line(p[i], p[i + 1], p[i + 2], p[i + 3]);
+                    painter.repaint();
+                    return 0;
+                };
+            case "poly":
+                return () -> {
+                    for(int i = 0; i < n; i++)
+                        painter.poly(polygon);
+                    painter.repaint();
+                    return 0;
+                };
+            case "filledPoly":
+                return () -> {
+                    for(int i = 0; i < n; i++)
+                        painter.filledPoly(polygon);
+                    painter.repaint();
+                    return 0;
+                };
+            case "text":
+                return () -> {
+                    for(int i = 0; i < n; i++)
+                        painter.text(p[4*i], p[4*i + 1], "P" + i%200);
+                    painter.repaint();
+                    return 0;
+                };
+            case "clear":
+                return () -> {
+                    for(int i = 0; i < n; i++)
+                        painter.clear(Color.BLACK);
+                    painter.repaint();
+                    return 0;
+                };
+            case "save":
+                return () -> {
+                    painter.save(png.getPath());
+                    return png.length();
+                };
+            case "turtleMove":
+                return () -> {
+                    for(int i = 0; i < n; i++)
+                    {
+                        turtle.move(.1 + i%7*.05);
+                        turtle.turn(91);
+                    }
+                    turtle.repaint();
+                    return 0;
+                };
+            case "turtleScene":
+                final Spirolateral curve = new Spirolateral();
+                return () -> {
+                    int repetitions = 7;
+                    int count = curve.compute(1, 87, repetitions);
+                    double[] xy = curve.vertices();
+                    turtle.fit(curve.minX(), curve.minY(), curve.maxX(), curve.maxY(), 0.05);
+                    turtle.clear(Color.BLACK);
+                    turtle.colors(repetitions);
+                    turtle.flyTo(xy[0], xy[1]);
+                    for(int k = 1; k < count; k++)
+                    {
+                        turtle.color((k - 1)%repetitions);
+                        turtle.moveTo(xy[2*k], xy[2*k + 1]);
+                    }
+                    turtle.repaint();
+                    return count;
+                };
+        }
+        throw new IllegalArgumentException("Unbekanntes Szenario: " + op);
+    }
+
+    /** Erzeugt reproduzierbare, kurze Zufallsstrecken wie bei einer Turtlegrafik.
+      * @param n Anzahl Strecken.
+      * @param size Kantenlaenge der Flaeche in Pixel.
+      * @return Je 4 Pixelkoordinaten pro Strecke.
+      */
+    static double[] segments(int n, int size)
+    {
+        Random rng = new Random(42);
+        double[] p = new double[4*n];
+        double x = size/2;
+        double y = size/2;
+        for(int i = 0; i < p.length; i += 4)
+        {
+            double a = rng.nextDouble()*2*Math.PI;
+            double d = 2 + rng.nextDouble()*30;
+            p[i] = x;
+            p[i + 1] = y;
+            x = Math.max(0, Math.min(size - 1, x + d*Math.cos(a)));
+            y = Math.max(0, Math.min(size - 1, y + d*Math.sin(a)));
+            p[i + 2] = x;
+            p[i + 3] = y;
+        }
+        return p;
+    }
+}
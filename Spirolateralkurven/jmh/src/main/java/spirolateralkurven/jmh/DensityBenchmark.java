@@ -0,0 +1,35 @@
+package spirolateralkurven.jmh;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/** Antialiased drawLine gegen den Zaehlpuffer des Dichtemodus. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class DensityBenchmark
+{
+    @Param({"drawLine", "wu"})
+    public String method;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        workload = Scenarios.create("density", method, N);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public long density() throws Exception
+    {
+        return workload.run();
+    }
+
+    /** Strecken pro Lauf. */
+    static final int N = 100_000;
+
+    private Workload workload;
+}
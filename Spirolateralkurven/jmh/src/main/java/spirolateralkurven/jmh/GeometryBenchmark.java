@@ -0,0 +1,32 @@
+package spirolateralkurven.jmh;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/** Wie viele Spirolateralkurven pro Sekunde berechnet werden koennen. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GeometryBenchmark
+{
+    @Setup
+    public void setup() throws Exception
+    {
+        workload = Scenarios.create("geometry", N);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public long compute() throws Exception
+    {
+        return workload.run();
+    }
+
+    /** Kurven pro Lauf. */
+    static final int N = 100_000;
+
+    private Workload workload;
+}
@@ -0,0 +1,43 @@
+package spirolateralkurven.jmh;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/** drawLine gegen das direkte Zeichnen in die Pixel mit LineRasterizer,
+  * jeweils mit und ohne Kantenglaettung und fuer 1 und 3 Pixel Breite.
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class LinesBenchmark
+{
+    @Param({"drawLine", "raster"})
+    public String method;
+
+    @Param({"1", "3"})
+    public int width;
+
+    @Param({"true", "false"})
+    public boolean antialias;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        workload = Scenarios.create("lines", method, width, antialias, N);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public long lines() throws Exception
+    {
+        return workload.run();
+    }
+
+    /** Strecken pro Lauf. */
+    static final int N = 100_000;
+
+    private Workload workload;
+}
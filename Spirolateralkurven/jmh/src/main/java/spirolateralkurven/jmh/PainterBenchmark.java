@@ -0,0 +1,125 @@
+package spirolateralkurven.jmh;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/** Die oeffentlichen Zeichenoperationen von Painter und TurtlePainter
+  * fuer mehrere Flaechengroessen, mit und ohne Kantenglaettung,
+  * ohne Fenster und im Modus painter.hidden, der bei jedem repaint() speichert.
+  * Jede Operation zeichnet auf einer eigenen Flaeche.
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PainterBenchmark
+{
+    @Param({"512", "2048"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean antialias;
+
+    @Param({"false", "true"})
+    public boolean hidden;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        line = create("line", LINES);
+        poly = create("poly", SHAPES);
+        filledPoly = create("filledPoly", SHAPES);
+        text = create("text", SHAPES);
+        clear = create("clear", CLEARS);
+        save = create("save", 1);
+        turtleMove = create("turtleMove", LINES);
+        turtleScene = create("turtleScene", 1);
+    }
+
+    private Workload create(String op, int n) throws Exception
+    {
+        return Scenarios.create("painter", op, size, antialias, hidden, n);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long line() throws Exception
+    {
+        return line.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SHAPES)
+    public long poly() throws Exception
+    {
+        return poly.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SHAPES)
+    public long filledPoly() throws Exception
+    {
+        return filledPoly.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SHAPES)
+    public long text() throws Exception
+    {
+        return text.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLEARS)
+    public long clear() throws Exception
+    {
+        return clear.run();
+    }
+
+    @Benchmark
+    public long save() throws Exception
+    {
+        return save.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long turtleMove() throws Exception
+    {
+        return turtleMove.run();
+    }
+
+    /** Eine ganze Spirolateralkurve von fit() bis repaint(). */
+    @Benchmark
+    public long turtleScene() throws Exception
+    {
+        return turtleScene.run();
+    }
+
+    /** Linien und Turtleschritte pro Lauf. */
+    static final int LINES = 10_000;
+
+    /** Polygone und Texte pro Lauf. */
+    static final int SHAPES = 1000;
+
+    /** Uebermalte Flaechen pro Lauf. */
+    static final int CLEARS = 100;
+
+    private Workload line;
+
+    private Workload poly;
+
+    private Workload filledPoly;
+
+    private Workload text;
+
+    private Workload clear;
+
+    private Workload save;
+
+    private Workload turtleMove;
+
+    private Workload turtleScene;
+}
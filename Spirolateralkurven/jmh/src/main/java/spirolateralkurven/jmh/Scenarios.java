@@ -0,0 +1,34 @@
+package spirolateralkurven.jmh;
+
+import java.lang.reflect.*;
+
+/** Holt die Laeufe aus {@code BenchmarkScenarios} im Paket ohne Namen.
+  * Aus einem benannten Paket kann man Klassen ohne Paket nicht direkt
+  * ansprechen; der Umweg ueber Reflection kostet nur beim Vorbereiten.
+  */
+final class Scenarios
+{
+    private Scenarios()
+    {
+    }
+
+    /** Bereitet ein Szenario vor.
+      * @param name Name der Methode in BenchmarkScenarios.
+      * @param args Argumente; Integer und Boolean stehen fuer int und boolean.
+      * @return Der Lauf.
+      */
+    static Workload create(String name, Object... args) throws Exception
+    {
+        Class<?>[] types = new Class<?>[args.length];
+        for(int i = 0; i < args.length; i++)
+            types[i] = args[i] instanceof Integer?  int.class:  args[i] instanceof Boolean?  boolean.class:  args[i].getClass();
+        try
+        {
+            return (Workload)Class.forName("BenchmarkScenarios").getMethod(name, types).invoke(null, args);
+        }
+        catch(InvocationTargetException ex)
+        {
+            throw ex.getCause() instanceof Exception?  (Exception)ex.getCause():  ex;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package spirolateralkurven.jmh;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/** shade() gegen die Tabellenzugriffe und den Verlaufsmodus von Shades. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ShadesBenchmark
+{
+    @Param({"shade", "shadeRgb", "gradientRgb", "gradientRgbLerp"})
+    public String method;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        workload = Scenarios.create("shades", method, N);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public long shades() throws Exception
+    {
+        return workload.run();
+    }
+
+    /** Operationen pro Lauf. */
+    static final int N = 10_000_000;
+
+    private Workload workload;
+}
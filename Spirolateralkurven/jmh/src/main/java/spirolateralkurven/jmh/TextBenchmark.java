@@ -0,0 +1,37 @@
+package spirolateralkurven.jmh;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+/** getStringBounds und drawString gegen TextCache fuer 200 immer wieder
+  * verwendete Beschriftungen.
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TextBenchmark
+{
+    @Param({"drawString", "cached"})
+    public String method;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        workload = Scenarios.create("text", method, N);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public long text() throws Exception
+    {
+        return workload.run();
+    }
+
+    /** Texte pro Lauf. */
+    static final int N = 20_000;
+
+    private Workload workload;
+}
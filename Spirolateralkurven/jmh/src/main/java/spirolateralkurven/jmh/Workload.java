@@ -0,0 +1,12 @@
+package spirolateralkurven.jmh;
+
+/** Ein messbarer Lauf aus {@code BenchmarkScenarios}.
+  */
+@FunctionalInterface
+public interface Workload
+{
+    /** Fuehrt den Lauf einmal aus.
+      * @return Ein Ergebnis, das JMH verbraucht, damit der JIT nichts wegoptimiert.
+      */
+    long run() throws Exception;
+}